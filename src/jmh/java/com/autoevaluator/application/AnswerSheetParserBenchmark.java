@@ -0,0 +1,54 @@
+package com.autoevaluator.application;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-pass {@link AnswerSheetParser} against the regex parser it replaced, on synthetic OCR dumps
+ * from a short quiz up to a long end-term sheet. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnswerSheetParserBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int questions;
+
+    @Param({"5", "40"})
+    private int linesPerAnswer;
+
+    private final AnswerSheetParser parser = new AnswerSheetParser();
+    private String text;
+
+    @Setup
+    public void generate() {
+        text = SyntheticOcrText.sheet(new Random(42), questions, linesPerAnswer);
+    }
+
+    @Benchmark
+    public Map<String, String> singlePass() {
+        return parser.parse(text);
+    }
+
+    @Benchmark
+    public Map<String, String> regex() {
+        return RegexAnswerSheetParser.parse(text);
+    }
+}
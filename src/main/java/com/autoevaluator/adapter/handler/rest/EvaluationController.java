@@ -1,10 +1,13 @@
 package com.autoevaluator.adapter.handler.rest;
 
+import com.autoevaluator.application.BulkJobService;
 import com.autoevaluator.application.EvaluationService;
 import com.autoevaluator.domain.dto.AnswerScoreDto;
 import com.autoevaluator.domain.dto.BulkEvaluateRequest;
 import com.autoevaluator.domain.dto.EvaluationResponseDto;
+import com.autoevaluator.domain.entity.AnswerSheetType;
 import com.autoevaluator.domain.entity.AppUser;
+import com.autoevaluator.domain.entity.BulkJob;
 import com.autoevaluator.domain.models.UserPrincipal;
 import com.autoevaluator.domain.repositories.AppUserRepository;
 import com.autoevaluator.util.TaskRateLimiter;
@@ -30,6 +33,7 @@ import java.util.Map;
 public class EvaluationController extends BaseRestController {
 
     private final EvaluationService evaluationService;
+    private final BulkJobService bulkJobService;
     private final AppUserRepository appUserRepository;
     private static final Logger log = LoggerFactory.getLogger(EvaluationController.class);
     @Autowired
@@ -41,7 +45,8 @@ public class EvaluationController extends BaseRestController {
             description = "Evaluates the midterm for a student in a specific course and returns detailed results.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "202", description = "Midterm evaluation accepted and started."),
-            @ApiResponse(responseCode = "429", description = "Too many requests.")
+            @ApiResponse(responseCode = "429", description = "Too many requests."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
     })
     public ResponseEntity<?> evaluateMidterm(@RequestParam String studentUsername,
                                              @RequestParam String courseName) throws Exception {
@@ -64,7 +69,8 @@ public class EvaluationController extends BaseRestController {
             description = "Evaluates the endterm for a student in a specific course and returns detailed results.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "202", description = "Endterm evaluation accepted and started."),
-            @ApiResponse(responseCode = "429", description = "Too many requests.")
+            @ApiResponse(responseCode = "429", description = "Too many requests."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
     })
     public ResponseEntity<?> evaluateEndterm(@RequestParam String studentUsername,
                                              @RequestParam String courseName) {
@@ -88,7 +94,8 @@ public class EvaluationController extends BaseRestController {
             description = "Evaluates a specific assignment for a student in a course.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "202", description = "Assignment evaluation accepted and started."),
-            @ApiResponse(responseCode = "429", description = "Too many requests.")
+            @ApiResponse(responseCode = "429", description = "Too many requests."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
     })
     public ResponseEntity<?> evaluateAssignment(@RequestParam String studentUsername,
                                                 @RequestParam String courseName,
@@ -114,7 +121,9 @@ public class EvaluationController extends BaseRestController {
             description = "Initiates evaluation for all uploaded answer sheets of a given type in a course.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "202", description = "Bulk evaluation accepted and started."),
-            @ApiResponse(responseCode = "400", description = "Invalid request parameters.")
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters."),
+            @ApiResponse(responseCode = "429", description = "Teacher already has too many bulk jobs in progress."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
     })
     public ResponseEntity<?> bulkEvaluateAnswerSheets(@RequestBody BulkEvaluateRequest request) throws Exception {
         log.info("[BULK_EVALUATE] Received bulk evaluate request: {}", request);
@@ -122,6 +131,7 @@ public class EvaluationController extends BaseRestController {
         String courseName = request.getCourseName();
         String type = request.getEvaluationType(); // MIDTERM, ENDTERM, ASSIGNMENT
         Integer assignmentNumber = request.getAssignmentNumber();
+        boolean incremental = Boolean.TRUE.equals(request.getIncremental());
         String teacherUsername = getCurrentUser().getUsername();
 
         if (courseName == null || type == null) {
@@ -130,17 +140,16 @@ public class EvaluationController extends BaseRestController {
                     .body(new ErrorResponse(400, "❌ courseName and type are required."));
         }
 
-        log.info("[BULK_EVALUATE] Starting bulk evaluation for course: {}, type: {}, teacher: {}", courseName, type, teacherUsername);
+        log.info("[BULK_EVALUATE] Starting bulk evaluation for course: {}, type: {}, teacher: {}, incremental: {}", courseName, type, teacherUsername, incremental);
 
+        AnswerSheetType sheetType;
         switch (type.toUpperCase()) {
             case "MIDTERM":
-                log.info("[BULK_EVALUATE] Triggering bulkEvaluateMidtermAsync");
-                evaluationService.bulkEvaluateMidtermAsync(courseName, teacherUsername);
+                sheetType = AnswerSheetType.MIDTERM;
                 break;
 
             case "ENDTERM":
-                log.info("[BULK_EVALUATE] Triggering bulkEvaluateEndtermAsync");
-                evaluationService.bulkEvaluateEndtermAsync(courseName, teacherUsername);
+                sheetType = AnswerSheetType.ENDTERM;
                 break;
 
             case "ASSIGNMENT":
@@ -149,8 +158,7 @@ public class EvaluationController extends BaseRestController {
                     return ResponseEntity.badRequest()
                             .body(new ErrorResponse(400, "❌ assignmentNumber is required for ASSIGNMENT evaluation."));
                 }
-                log.info("[BULK_EVALUATE] Triggering bulkEvaluateAssignmentAsync for assignmentNumber: {}", assignmentNumber);
-                evaluationService.bulkEvaluateAssignmentAsync(courseName, assignmentNumber, teacherUsername);
+                sheetType = AnswerSheetType.ASSIGNMENT;
                 break;
 
             default:
@@ -159,10 +167,13 @@ public class EvaluationController extends BaseRestController {
                         .body(new ErrorResponse(400, "❌ Invalid sheet type. Allowed: MIDTERM, ENDTERM, ASSIGNMENT."));
         }
 
-        log.info("[BULK_EVALUATE] Bulk evaluation accepted and started for course: {}", courseName);
+        BulkJob job = bulkJobService.submitEvaluation(courseName, sheetType,
+                sheetType == AnswerSheetType.ASSIGNMENT ? assignmentNumber : null, incremental, teacherUsername);
+        log.info("[BULK_EVALUATE] Bulk evaluation job {} accepted and started for course: {}", job.getId(), courseName);
 
         return ResponseEntity.accepted().body(Map.of(
-                "message", "✅ Bulk evaluation started. You will be notified as evaluations complete."
+                "message", "✅ Bulk evaluation started. You will be notified as evaluations complete.",
+                "jobId", job.getId()
         ));
     }
 
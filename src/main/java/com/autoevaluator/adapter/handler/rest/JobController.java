@@ -0,0 +1,54 @@
+package com.autoevaluator.adapter.handler.rest;
+
+import com.autoevaluator.application.BulkJobService;
+import com.autoevaluator.domain.dto.BulkJobStatusDto;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobController extends BaseRestController {
+
+    private final BulkJobService bulkJobService;
+
+    @GetMapping
+    @Operation(summary = "List Bulk Jobs",
+            description = "Returns the 20 most recent bulk upload and bulk evaluation jobs of the current teacher.")
+    public ResponseEntity<List<BulkJobStatusDto>> getJobs() {
+        return ResponseEntity.ok(bulkJobService.getRecentJobs(currentUsername()));
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get Bulk Job Status",
+            description = "Returns state, processed/failed/total counts, throughput, p50/p95 item latency and ETA of a bulk job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status fetched successfully."),
+            @ApiResponse(responseCode = "400", description = "Job not found.")
+    })
+    public ResponseEntity<BulkJobStatusDto> getJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(bulkJobService.getStatus(jobId, currentUsername()));
+    }
+
+    @PostMapping("/{jobId}/cancel")
+    @Operation(summary = "Cancel Bulk Job",
+            description = "Stops dispatching the remaining students of a bulk job. Students already in progress still finish.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job cancelled."),
+            @ApiResponse(responseCode = "400", description = "Job not found or already finished.")
+    })
+    public ResponseEntity<BulkJobStatusDto> cancelJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(bulkJobService.cancel(jobId, currentUsername()));
+    }
+
+    private String currentUsername() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+}
@@ -1,11 +1,13 @@
 package com.autoevaluator.adapter.handler.rest;
 
+import com.autoevaluator.application.BulkJobService;
 import com.autoevaluator.application.QuestionPaperPdfGenerator;
 import com.autoevaluator.application.TeacherService;
 
 import com.autoevaluator.domain.dto.*;
 import com.autoevaluator.domain.entity.AnswerSheetType;
 import com.autoevaluator.domain.entity.AppUser;
+import com.autoevaluator.domain.entity.BulkJob;
 import com.autoevaluator.domain.entity.QuestionPaper;
 import com.autoevaluator.domain.models.UserPrincipal;
 import com.autoevaluator.domain.repositories.AppUserRepository;
@@ -52,11 +54,14 @@ public class TeacherController extends BaseRestController {
     private final QuestionPaperRepository questionPaperRepository;
 
     private final TaskRateLimiter taskRateLimiter;
-    public TeacherController(TeacherService teacherService, AppUserRepository appUserRepository, TaskRateLimiter taskRateLimiter, QuestionPaperRepository questionPaperRepository) {
+
+    private final BulkJobService bulkJobService;
+    public TeacherController(TeacherService teacherService, AppUserRepository appUserRepository, TaskRateLimiter taskRateLimiter, QuestionPaperRepository questionPaperRepository, BulkJobService bulkJobService) {
         this.teacherService = teacherService;
         this.appUserRepository = appUserRepository;
         this.taskRateLimiter = taskRateLimiter;
         this.questionPaperRepository = questionPaperRepository;
+        this.bulkJobService = bulkJobService;
     }
 
 
@@ -212,7 +217,17 @@ public class TeacherController extends BaseRestController {
         List<StudentResponse> dashboard = teacherService.getStudentDashboardInfo(collegeName,departmentName, semester, courseName);
 
         return ResponseEntity.ok(dashboard);
-    }@PostMapping("/uploadMidtermAnswerSheet")
+    }
+
+    @PostMapping("/uploadMidtermAnswerSheet")
+    @Operation(summary = "Upload Midterm Answer Sheet",
+            description = "Accepts the image pages of one student's midterm answer sheet and reads them in the background.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Answer sheet received, processing started."),
+            @ApiResponse(responseCode = "400", description = "Question paper missing or invalid files."),
+            @ApiResponse(responseCode = "429", description = "Too many requests."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
+    })
     public ResponseEntity<?> uploadMidtermAnswerSheet(
             @RequestParam String studentUsername,
             @RequestParam String courseName,
@@ -274,6 +289,14 @@ public class TeacherController extends BaseRestController {
     }
 
     @PostMapping("/uploadEndtermAnswerSheet")
+    @Operation(summary = "Upload Endterm Answer Sheet",
+            description = "Accepts the image pages of one student's endterm answer sheet and reads them in the background.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Answer sheet received, processing started."),
+            @ApiResponse(responseCode = "400", description = "Question paper missing or invalid files."),
+            @ApiResponse(responseCode = "429", description = "Too many requests."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
+    })
     public ResponseEntity<?> uploadEndtermAnswerSheet(
             @RequestParam String studentUsername,
             @RequestParam String courseName,
@@ -323,6 +346,14 @@ public class TeacherController extends BaseRestController {
     }
 
     @PostMapping("/uploadAssignmentAnswerSheet")
+    @Operation(summary = "Upload Assignment Answer Sheet",
+            description = "Accepts the image pages of one student's assignment answer sheet and reads them in the background.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Answer sheet received, processing started."),
+            @ApiResponse(responseCode = "400", description = "Question paper missing or invalid files."),
+            @ApiResponse(responseCode = "429", description = "Too many requests."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
+    })
     public ResponseEntity<?> uploadAssignmentAnswerSheet(
             @RequestParam String studentUsername,
             @RequestParam String courseName,
@@ -504,11 +535,20 @@ public class TeacherController extends BaseRestController {
 
 
     @PostMapping(value = "/uploadBulkAnswerSheets", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Bulk Upload Answer Sheets",
+            description = "Starts a background job reading every student's answer sheet from a ZIP, optionally evaluating each one as it is saved.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Bulk upload accepted and started."),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters."),
+            @ApiResponse(responseCode = "429", description = "Teacher already has too many bulk jobs in progress."),
+            @ApiResponse(responseCode = "503", description = "Server busy, retry after the Retry-After header.")
+    })
     public ResponseEntity<?> uploadBulkAnswerSheets(
             @RequestParam("file") MultipartFile zipFile,
             @RequestParam("courseName") String courseName,
             @RequestParam("type") AnswerSheetType sheetType,
-            @RequestParam(value = "assignmentNumber", required = false) String assignmentNumber
+            @RequestParam(value = "assignmentNumber", required = false) String assignmentNumber,
+            @RequestParam(value = "evaluate", defaultValue = "false") boolean evaluate
     ) {
         Logger log = LoggerFactory.getLogger(TeacherController.class);
 
@@ -518,6 +558,7 @@ public class TeacherController extends BaseRestController {
         log.info("📘 Course Name: {}", courseName);
         log.info("📄 Sheet Type: {}", sheetType);
         log.info("📎 Assignment Number: {}", assignmentNumber);
+        log.info("🧮 Evaluate on upload: {}", evaluate);
 
         if (sheetType == AnswerSheetType.ASSIGNMENT && (assignmentNumber == null || assignmentNumber.isBlank())) {
             log.warn("❌ Assignment number is missing for ASSIGNMENT type upload");
@@ -546,14 +587,19 @@ public class TeacherController extends BaseRestController {
         }
 
         try {
-            byte[] zipBytes = zipFile.getBytes(); // ✅ Eagerly read while temp file exists
             String teacherUsername = SecurityContextHolder.getContext().getAuthentication().getName();
 
             log.info("👤 Teacher uploading: {}", teacherUsername);
-            teacherService.processBulkZipUploadAsync(zipBytes, courseName, sheetType, assignmentNumber, teacherUsername);
+            // ✅ Spooled to disk while the multipart temp file exists; the job survives restarts
+            // ✅ evaluate=true runs the upload as a pipeline that also evaluates each student as soon as they are saved
+            BulkJob job = bulkJobService.submitUpload(zipFile, courseName, sheetType, assignmentNumber, evaluate, teacherUsername);
 
-            log.info("✅ Async processing started for bulk ZIP");
-            return ResponseEntity.accepted().body(Map.of("message", "✅ Bulk upload started. You’ll be notified as uploads progress."));
+            log.info("✅ Bulk upload job {} started", job.getId());
+            return ResponseEntity.accepted().body(Map.of(
+                    "message", evaluate
+                            ? "✅ Bulk upload and evaluation started. You’ll be notified as students are evaluated."
+                            : "✅ Bulk upload started. You’ll be notified as uploads progress.",
+                    "jobId", job.getId()));
         } catch (Exception e) {
             log.error("❌ Upload failed: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body(Map.of("error", "❌ Upload failed: " + e.getMessage()));
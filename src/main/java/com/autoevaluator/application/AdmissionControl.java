@@ -0,0 +1,103 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.entity.BulkJobStatus;
+import com.autoevaluator.domain.repositories.BulkJobRepository;
+import com.autoevaluator.util.PriorityTaskExecutor;
+import com.autoevaluator.util.WorkPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Decides whether an upload or evaluation request is accepted before any of its work is queued.
+ *
+ * Single-sheet requests are refused with 503 once the interactive queue is full or its estimated wait is too
+ * long; bulk submissions with 503 once too many jobs are unfinished overall, and with 429 once the teacher
+ * has too many of their own. Every refusal carries a Retry-After estimate.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private static final List<BulkJobStatus> UNFINISHED = List.of(BulkJobStatus.QUEUED, BulkJobStatus.RUNNING);
+
+    private final PriorityTaskExecutor taskExecutor;
+    private final BulkJobRepository bulkJobRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.admission.max-queued-interactive:50}")
+    private int maxQueuedInteractive;
+    @Value("${spring.admission.max-wait:2m}")
+    private Duration maxWait;
+    @Value("${spring.admission.max-unfinished-jobs:20}")
+    private int maxUnfinishedJobs;
+    @Value("${spring.admission.max-unfinished-jobs-per-teacher:5}")
+    private int maxUnfinishedJobsPerTeacher;
+    @Value("${spring.admission.bulk-retry-after:60s}")
+    private Duration bulkRetryAfter;
+
+    public AdmissionControl(PriorityTaskExecutor taskExecutor, BulkJobRepository bulkJobRepository,
+                            MeterRegistry meterRegistry) {
+        this.taskExecutor = taskExecutor;
+        this.bulkJobRepository = bulkJobRepository;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("admission.queue.occupancy", this,
+                        a -> (double) taskExecutor.getQueued(WorkPriority.INTERACTIVE) / Math.max(1, a.maxQueuedInteractive))
+                .tag("priority", "interactive").register(meterRegistry);
+        Gauge.builder("admission.queue.estimated-wait", taskExecutor,
+                        e -> e.getEstimatedWaitMillis(WorkPriority.INTERACTIVE) / 1000.0)
+                .tag("priority", "interactive").baseUnit("seconds").register(meterRegistry);
+    }
+
+    public Decision admitInteractive(String endpoint) {
+        int queued = taskExecutor.getQueued(WorkPriority.INTERACTIVE);
+        long waitMillis = taskExecutor.getEstimatedWaitMillis(WorkPriority.INTERACTIVE);
+
+        if (queued >= maxQueuedInteractive) {
+            return reject(endpoint, "queue_full", 503, waitMillis,
+                    "⏳ The server is busy processing answer sheets (" + queued + " queued). Please try again shortly.");
+        }
+        if (waitMillis > maxWait.toMillis()) {
+            return reject(endpoint, "wait_too_long", 503, waitMillis,
+                    "⏳ The server is busy, this request would wait about " + (waitMillis / 1000) + "s. Please try again shortly.");
+        }
+        return Decision.ADMITTED;
+    }
+
+    public Decision admitBulk(String endpoint, String teacherUsername) {
+        long teacherJobs = bulkJobRepository.countByTeacherUsernameAndStatusIn(teacherUsername, UNFINISHED);
+        if (teacherJobs >= maxUnfinishedJobsPerTeacher) {
+            return reject(endpoint, "teacher_jobs", 429, bulkRetryAfter.toMillis(),
+                    "🕒 You already have " + teacherJobs + " bulk jobs in progress. Wait for one to finish or cancel it.");
+        }
+        long jobs = bulkJobRepository.countByStatusIn(UNFINISHED);
+        if (jobs >= maxUnfinishedJobs) {
+            return reject(endpoint, "jobs_full", 503, bulkRetryAfter.toMillis(),
+                    "⏳ Too many bulk jobs are in progress right now. Please try again shortly.");
+        }
+        return Decision.ADMITTED;
+    }
+
+    private Decision reject(String endpoint, String reason, int status, long retryAfterMillis, String message) {
+        Counter.builder("admission.rejected")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        log.warn("[ADMISSION] Rejected {} with {} ({}), retry after {}s", endpoint, status, reason, retryAfterSeconds);
+        return new Decision(false, status, retryAfterSeconds, message);
+    }
+
+    public record Decision(boolean admitted, int status, long retryAfterSeconds, String message) {
+        static final Decision ADMITTED = new Decision(true, 202, 0, null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares scores between the sheets of one bulk evaluation run, so every distinct
+ * (answer key, normalized answer, marks) pair is scored once however many students wrote it.
+ *
+ * The first sheet to reach a pair claims it and scores it; later sheets wait for that result instead of
+ * sending the same answer again. Safe to use from sheets evaluated concurrently.
+ */
+public class AnswerDeduplicator {
+
+    private final Map<String, CompletableFuture<SharedScore>> scores = new ConcurrentHashMap<>();
+    // Every pair ever claimed, so a pair claimed again after a failure is not counted twice
+    private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger scored = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger blank = new AtomicInteger();
+
+    /**
+     * Returns null if the caller now owns {@code key} and must {@link #complete} or {@link #fail} it,
+     * otherwise the pending or finished score of the sheet that owns it.
+     */
+    CompletableFuture<SharedScore> claim(String key) {
+        CompletableFuture<SharedScore> existing = scores.putIfAbsent(key, new CompletableFuture<>());
+        if (existing == null && claimed.add(key)) {
+            scored.incrementAndGet();
+        }
+        return existing;
+    }
+
+    /**
+     * Waits for the score of a pair another sheet claimed. Returns null if that sheet failed to score it,
+     * in which case the caller scores it itself and nothing was reused.
+     */
+    SharedScore await(CompletableFuture<SharedScore> shared) {
+        try {
+            SharedScore score = shared.join();
+            reused.incrementAndGet();
+            return score;
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    void complete(String key, CompareAnswersResponse response, boolean provisional) {
+        scores.get(key).complete(new SharedScore(response, provisional));
+    }
+
+    /**
+     * Releases waiters of a pair the owner could not score; they score it themselves. The pair is unclaimed
+     * again, so a later sheet scores it instead of inheriting the failure.
+     */
+    void fail(String key, Throwable cause) {
+        CompletableFuture<SharedScore> future = scores.get(key);
+        if (future != null) {
+            scores.remove(key, future);
+            future.completeExceptionally(cause);
+        }
+    }
+
+    void blankAnswer() {
+        blank.incrementAndGet();
+    }
+
+    /**
+     * Distinct non-blank answers sent to the scorer (or found in the score cache).
+     */
+    public int getScored() {
+        return scored.get();
+    }
+
+    /**
+     * Answers that reused another student's score, i.e. scoring calls saved.
+     */
+    public int getReused() {
+        return reused.get();
+    }
+
+    public int getBlank() {
+        return blank.get();
+    }
+
+    record SharedScore(CompareAnswersResponse response, boolean provisional) {
+    }
+}
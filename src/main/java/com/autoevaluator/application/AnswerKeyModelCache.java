@@ -0,0 +1,99 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.entity.Question;
+import com.autoevaluator.domain.entity.QuestionPaper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Preprocessed answer keys per question paper, so evaluating a student does no key re-processing.
+ *
+ * Entries are keyed by paper id and {@link QuestionPaper#getAnswerKeyVersion()}; TeacherService bumps the
+ * version and evicts the entry whenever a question of the paper is added, edited or deleted, so a stale
+ * entry is never served even if another request recompiled it before the change was committed.
+ */
+@Component
+public class AnswerKeyModelCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerKeyModelCache.class);
+
+    private final Map<Long, CompiledPaper> papers = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter compiles;
+
+    public AnswerKeyModelCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("answerkey.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.compiles = Counter.builder("answerkey.cache.requests").tag("result", "compile").register(meterRegistry);
+        Gauge.builder("answerkey.cache.size", papers, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the compiled keys of the paper's current version, compiling them on first use.
+     * Must be called while the paper's questions can still be loaded.
+     */
+    public CompiledPaper get(QuestionPaper paper) {
+        int version = versionOf(paper);
+        CompiledPaper cached = papers.get(paper.getId());
+        if (cached != null && cached.version() == version) {
+            hits.increment();
+            return cached;
+        }
+
+        CompiledPaper compiled = compile(paper, version);
+        papers.merge(paper.getId(), compiled, (old, fresh) -> fresh.version() >= old.version() ? fresh : old);
+        compiles.increment();
+        log.debug("[ANSWER_KEYS] Compiled {} answer keys of paper {} (version {})",
+                compiled.keys().size(), paper.getId(), version);
+        return compiled;
+    }
+
+    public void invalidate(Long paperId) {
+        if (paperId != null && papers.remove(paperId) != null) {
+            log.info("[ANSWER_KEYS] Evicted compiled answer keys of paper {}", paperId);
+        }
+    }
+
+    private CompiledPaper compile(QuestionPaper paper, int version) {
+        List<Question> questions = paper.getQuestions();
+        List<CompiledAnswerKey> keys = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            String correctAnswer = question.getAnswerKey() != null ? question.getAnswerKey().getCorrectAnswer() : "";
+            if (correctAnswer == null) correctAnswer = "";
+            keys.add(new CompiledAnswerKey(
+                    question.getQuestionNumber(),
+                    question.getMarks().intValue(),
+                    correctAnswer,
+                    ScoreCache.normalize(correctAnswer),
+                    List.copyOf(LexicalAnswerScorer.tokenize(correctAnswer))));
+        }
+        return new CompiledPaper(paper.getId(), version, List.copyOf(keys));
+    }
+
+    private static int versionOf(QuestionPaper paper) {
+        return paper.getAnswerKeyVersion() != null ? paper.getAnswerKeyVersion() : 0;
+    }
+
+    /**
+     * Answer keys of one paper version, in question order.
+     */
+    public record CompiledPaper(Long paperId, int version, List<CompiledAnswerKey> keys) {
+    }
+
+    /**
+     * One question's key: the raw text sent to the NLI service, its normalized form used in score cache keys,
+     * and the stemmed, stop-word free tokens the lexical scorer works on.
+     */
+    public record CompiledAnswerKey(String questionNumber, int marks, String correctAnswer,
+                                    String normalizedAnswer, List<String> tokens) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersRequest;
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+
+import java.util.List;
+
+/**
+ * Scores student answers against answer keys. Implementations return NLI-shaped results
+ * (score, entailment, neutral, contradiction) so FeedbackGenerator works with any of them.
+ */
+public interface AnswerScorer {
+
+    /**
+     * Scores non-blank answers, returning exactly one response per request in the same order.
+     */
+    List<CompareAnswersResponse> scoreAll(List<CompareAnswersRequest> requests);
+}
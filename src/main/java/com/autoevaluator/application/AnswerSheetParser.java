@@ -0,0 +1,205 @@
+package com.autoevaluator.application;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits OCR text of an answer sheet into answers keyed "Ans1", "Ans2", ... in question order.
+ *
+ * A line starts a new answer when, after any leading punctuation, it begins with an answer marker
+ * ("Ans", or the OCR misreads "Ams", "Axs", "Ars", any case), optional separators (whitespace : ! . -)
+ * and the question number; the rest of that line and every following line belong to the answer.
+ * Text before the first marker is ignored, answers left empty are dropped and a repeated number
+ * keeps its first position with the last text.
+ *
+ * The text is scanned once, character by character, and answer text is copied straight from it into
+ * one reusable buffer: no per-line strings, no regex and no re-sorting unless the sheet is out of order.
+ */
+@Component
+public class AnswerSheetParser {
+
+    public Map<String, String> parse(CharSequence text) {
+        if (text == null || isBlank(text)) return Collections.emptyMap();
+
+        List<Answer> answers = new ArrayList<>();
+        Map<String, Answer> byLabel = new HashMap<>();
+        StringBuilder current = new StringBuilder();
+        String currentLabel = null;
+        String currentNumber = null;
+
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') lineEnd++;
+            int next = lineEnd + 1;
+
+            // Trim the line as String.trim() would (a trailing '\r' goes with it)
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && text.charAt(start) <= ' ') start++;
+            while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+            if (start < end) {
+                int numberStart = markerNumberStart(text, start, end);
+                if (numberStart >= 0) {
+                    int numberEnd = numberStart;
+                    while (numberEnd < end && isDigit(text.charAt(numberEnd))) numberEnd++;
+
+                    if (currentLabel != null) {
+                        save(answers, byLabel, currentLabel, currentNumber, current);
+                    }
+                    currentNumber = text.subSequence(numberStart, numberEnd).toString();
+                    currentLabel = "Ans" + currentNumber;
+                    current.setLength(0);
+
+                    int inline = numberEnd;
+                    while (inline < end && text.charAt(inline) <= ' ') inline++;
+                    if (inline < end) current.append(text, inline, end).append(' ');
+                } else if (currentLabel != null) {
+                    current.append(text, start, end).append(' ');
+                }
+            }
+            lineStart = next;
+        }
+        if (currentLabel != null) {
+            save(answers, byLabel, currentLabel, currentNumber, current);
+        }
+
+        if (!isOrdered(answers)) {
+            answers.sort(AnswerSheetParser::compareNumbers); // stable, ties keep sheet order
+        }
+        Map<String, String> result = new LinkedHashMap<>(answers.size() * 2);
+        for (Answer answer : answers) {
+            result.put(answer.label, answer.text);
+        }
+        return result;
+    }
+
+    /**
+     * Reads back text written by {@link #format}, without the ": " that follows each label.
+     */
+    public Map<String, String> parseStored(CharSequence stored) {
+        Map<String, String> answers = parse(stored);
+        answers.replaceAll((label, text) -> text.startsWith(":") ? text.substring(1).trim() : text);
+        answers.values().removeIf(String::isEmpty);
+        return answers;
+    }
+
+    /**
+     * The "Ans1: ..." blocks stored as an enrolment's or submission's answer sheet text.
+     */
+    public String format(Map<String, String> answers) {
+        StringBuilder formatted = new StringBuilder();
+        for (Map.Entry<String, String> answer : answers.entrySet()) {
+            if (formatted.length() > 0) formatted.append("\n\n");
+            formatted.append(answer.getKey()).append(": ").append(answer.getValue());
+        }
+        return formatted.toString();
+    }
+
+    /**
+     * Index of the question number if the trimmed line [start, end) opens an answer, otherwise -1.
+     */
+    private static int markerNumberStart(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && !isAsciiLetterOrDigit(text.charAt(i))) i++;
+        if (end - i < 4) return -1;
+
+        char a = text.charAt(i), n = text.charAt(i + 1), s = text.charAt(i + 2);
+        if ((a != 'a' && a != 'A') || (s != 's' && s != 'S')) return -1;
+        switch (n) {
+            case 'n', 'N', 'm', 'M', 'x', 'X', 'r', 'R' -> { }
+            default -> { return -1; }
+        }
+
+        i += 3;
+        while (i < end && isSeparator(text.charAt(i))) i++;
+        if (i >= end || !isDigit(text.charAt(i))) return -1;
+
+        // An inline answer containing a line terminator other than '\n' never counted as a marker line
+        for (int j = i; j < end; j++) {
+            char c = text.charAt(j);
+            if (c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') return -1;
+        }
+        return i;
+    }
+
+    private static void save(List<Answer> answers, Map<String, Answer> byLabel,
+                             String label, String number, StringBuilder text) {
+        int length = text.length();
+        while (length > 0 && text.charAt(length - 1) <= ' ') length--;
+        if (length == 0) return;
+
+        String value = text.substring(0, length);
+        Answer existing = byLabel.get(label);
+        if (existing != null) {
+            existing.text = value;
+        } else {
+            Answer answer = new Answer(label, number, value);
+            answers.add(answer);
+            byLabel.put(label, answer);
+        }
+    }
+
+    private static boolean isOrdered(List<Answer> answers) {
+        for (int i = 1; i < answers.size(); i++) {
+            if (compareNumbers(answers.get(i - 1), answers.get(i)) > 0) return false;
+        }
+        return true;
+    }
+
+    // Numeric order of the digit strings without parsing them, so "Ans007" sorts as 7 and never overflows
+    private static int compareNumbers(Answer a, Answer b) {
+        String x = a.number, y = b.number;
+        int i = 0, j = 0;
+        while (i < x.length() - 1 && x.charAt(i) == '0') i++;
+        while (j < y.length() - 1 && y.charAt(j) == '0') j++;
+        int byLength = Integer.compare(x.length() - i, y.length() - j);
+        if (byLength != 0) return byLength;
+        for (; i < x.length(); i++, j++) {
+            int byDigit = Character.compare(x.charAt(i), y.charAt(j));
+            if (byDigit != 0) return byDigit;
+        }
+        return 0;
+    }
+
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // Regex \s (ASCII whitespace) plus the separators OCR produces between "Ans" and the number
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r'
+                || c == ':' || c == '!' || c == '.' || c == '-';
+    }
+
+    private static final class Answer {
+        private final String label;
+        private final String number;
+        private String text;
+
+        private Answer(String label, String number, String text) {
+            this.label = label;
+            this.number = number;
+            this.text = text;
+        }
+    }
+}
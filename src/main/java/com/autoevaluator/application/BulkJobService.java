@@ -0,0 +1,845 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.BulkJobStatusDto;
+import com.autoevaluator.domain.entity.*;
+import com.autoevaluator.domain.exception.BadRequestException;
+import com.autoevaluator.domain.repositories.BulkJobItemRepository;
+import com.autoevaluator.domain.repositories.BulkJobRepository;
+import com.autoevaluator.domain.repositories.EnrolmentRepository;
+import com.autoevaluator.domain.repositories.TeacherRepository;
+import com.autoevaluator.util.FairShareQueue.Tenant;
+import com.autoevaluator.util.PipelineStage;
+import com.autoevaluator.util.PriorityTaskExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Durable bulk evaluations and bulk uploads.
+ *
+ * A job and one item row per student are written to Postgres before any work starts. A dispatcher thread
+ * per job claims pending items with SELECT ... FOR UPDATE SKIP LOCKED and hands them to the shared task pool,
+ * queued under the job's college and teacher so concurrent jobs of different tenants share it fairly;
+ * each item is marked DONE in the same transaction that saves the student's result, so after a crash or
+ * redeploy unfinished jobs resume on startup and never redo finished students.
+ *
+ * An upload submitted with evaluate=true runs as a pipeline instead: ingest, OCR, parse, persist, score and
+ * notify are separate {@link PipelineStage}s with their own bounded queue and workers, so one student is being
+ * scored while the next is still in OCR, and a full stage holds back reading of the ZIP.
+ */
+@Service
+public class BulkJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkJobService.class);
+
+    private static final List<BulkJobStatus> UNFINISHED = List.of(BulkJobStatus.QUEUED, BulkJobStatus.RUNNING);
+    private static final List<BulkJobItemStatus> OPEN_ITEMS = List.of(BulkJobItemStatus.PENDING, BulkJobItemStatus.RUNNING);
+
+    private final BulkJobRepository bulkJobRepository;
+    private final BulkJobItemRepository bulkJobItemRepository;
+    private final EnrolmentRepository enrolmentRepository;
+    private final TeacherRepository teacherRepository;
+    private final EvaluationService evaluationService;
+    private final TeacherService teacherService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor jobExecutor;
+    private final PriorityTaskExecutor taskExecutor;
+    private final AnswerSheetParser answerSheetParser;
+    private final MeterRegistry meterRegistry;
+    // DB connections bulk items may hold at once, whatever the number of task workers (see inItemTransaction)
+    private final Semaphore itemTransactions;
+
+    // Live counters of the jobs this instance is running
+    private final Map<Long, BulkJobProgress> running = new ConcurrentHashMap<>();
+
+    @Value("${spring.jobs.spool-dir}")
+    private String spoolDir;
+    @Value("${spring.jobs.claim-timeout:30m}")
+    private Duration claimTimeout;
+    @Value("${spring.jobs.reset-running-on-startup:true}")
+    private boolean resetRunningOnStartup;
+    @Value("${spring.jobs.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${spring.evaluation.bulk.max-concurrency:4}")
+    private int evaluationConcurrency;
+    @Value("${spring.jobs.upload-concurrency:3}")
+    private int uploadConcurrency;
+    @Value("${spring.jobs.upload-ingestion:streaming}")
+    private String uploadIngestion;
+    @Value("${spring.jobs.stream-buffer-limit:64MB}")
+    private DataSize streamBufferLimit;
+    @Value("${spring.jobs.pipeline.max-in-flight-per-job:16}")
+    private int pipelineMaxInFlight;
+    @Value("${spring.jobs.pipeline.workers:ingest=1,ocr=4,parse=1,persist=2,score=4,notify=1}")
+    private String pipelineWorkers;
+    @Value("${spring.jobs.pipeline.queue-capacity:ingest=4,ocr=8,parse=8,persist=8,score=8,notify=32}")
+    private String pipelineQueueCapacity;
+
+    // Stages shared by all pipeline jobs, started with the first one
+    private volatile Pipeline pipeline;
+
+    public BulkJobService(BulkJobRepository bulkJobRepository,
+                          BulkJobItemRepository bulkJobItemRepository,
+                          EnrolmentRepository enrolmentRepository,
+                          TeacherRepository teacherRepository,
+                          EvaluationService evaluationService,
+                          TeacherService teacherService,
+                          SimpMessagingTemplate messagingTemplate,
+                          TransactionTemplate transactionTemplate,
+                          @Qualifier("bulkJobExecutor") Executor jobExecutor,
+                          PriorityTaskExecutor taskExecutor,
+                          AnswerSheetParser answerSheetParser,
+                          MeterRegistry meterRegistry,
+                          @Value("${spring.jobs.max-item-transactions:0}") int maxItemTransactions,
+                          @Value("${spring.datasource.hikari.maximum-pool-size:10}") int dbPoolSize) {
+        this.bulkJobRepository = bulkJobRepository;
+        this.bulkJobItemRepository = bulkJobItemRepository;
+        this.enrolmentRepository = enrolmentRepository;
+        this.teacherRepository = teacherRepository;
+        this.evaluationService = evaluationService;
+        this.teacherService = teacherService;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.jobExecutor = jobExecutor;
+        this.taskExecutor = taskExecutor;
+        this.answerSheetParser = answerSheetParser;
+        this.meterRegistry = meterRegistry;
+        // By default bulk items get half the pool; the rest is left to requests and single-sheet work
+        this.itemTransactions = new Semaphore(maxItemTransactions > 0 ? maxItemTransactions : Math.max(1, dbPoolSize / 2));
+    }
+
+    /**
+     * Records a bulk evaluation of every enrolment of the course and starts it.
+     */
+    public BulkJob submitEvaluation(String courseName, AnswerSheetType sheetType, Integer assignmentNumber,
+                                    boolean incremental, String teacherUsername) {
+        BulkJob job = transactionTemplate.execute(status -> {
+            BulkJob saved = bulkJobRepository.save(BulkJob.builder()
+                    .jobType(BulkJobType.EVALUATION)
+                    .status(BulkJobStatus.QUEUED)
+                    .sheetType(sheetType)
+                    .courseName(courseName)
+                    .assignmentNumber(assignmentNumber != null ? assignmentNumber.toString() : null)
+                    .incremental(incremental)
+                    .teacherUsername(teacherUsername)
+                    .collegeName(collegeOf(teacherUsername))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+
+            List<BulkJobItem> items = enrolmentRepository.findByCourse_CourseName(courseName).stream()
+                    .map(e -> pendingItem(saved.getId(), e.getStudent().getUsername(), e.getStudent().getRollNo()))
+                    .toList();
+            bulkJobItemRepository.saveAll(items);
+            saved.setTotalItems(items.size());
+            return bulkJobRepository.save(saved);
+        });
+
+        log.info("[BULK_JOB] Job {} created: {} evaluation of {} for {} students", job.getId(), sheetType, courseName, job.getTotalItems());
+        start(job.getId());
+        return job;
+    }
+
+    /**
+     * Spools the ZIP to disk, records one item per student folder and starts the upload.
+     *
+     * @param evaluateOnUpload also evaluate each student right after their sheet is saved (pipeline mode)
+     */
+    public BulkJob submitUpload(MultipartFile zipFile, String courseName, AnswerSheetType sheetType,
+                                String assignmentNumber, boolean evaluateOnUpload, String teacherUsername) throws IOException {
+        Path dir = Paths.get(spoolDir);
+        Files.createDirectories(dir);
+        Path zipPath = Files.createTempFile(dir, "bulk-upload-", ".zip");
+        zipFile.transferTo(zipPath);
+
+        List<String> folders;
+        try {
+            folders = teacherService.listZipFolders(zipPath);
+        } catch (IOException e) {
+            Files.deleteIfExists(zipPath);
+            throw new BadRequestException("❌ Could not read ZIP: " + e.getMessage());
+        }
+
+        BulkJob job = transactionTemplate.execute(status -> {
+            BulkJob saved = bulkJobRepository.save(BulkJob.builder()
+                    .jobType(BulkJobType.UPLOAD)
+                    .status(BulkJobStatus.QUEUED)
+                    .sheetType(sheetType)
+                    .courseName(courseName)
+                    .assignmentNumber(assignmentNumber)
+                    .evaluateOnUpload(evaluateOnUpload)
+                    .teacherUsername(teacherUsername)
+                    .collegeName(collegeOf(teacherUsername))
+                    .payloadPath(zipPath.toString())
+                    .totalItems(folders.size())
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            bulkJobItemRepository.saveAll(folders.stream()
+                    .map(folder -> pendingItem(saved.getId(), folder, folder))
+                    .toList());
+            return saved;
+        });
+
+        log.info("[BULK_JOB] Job {} created: {} upload{} of {} for {} student folders", job.getId(), sheetType,
+                evaluateOnUpload ? " and evaluation" : "", courseName, folders.size());
+        start(job.getId());
+        return job;
+    }
+
+    /**
+     * Resumes jobs a previous run of the application did not finish. Items it left RUNNING are made
+     * claimable again right away (spring.jobs.reset-running-on-startup, meant for a single instance;
+     * with several instances leave it off and stale claims are taken over after spring.jobs.claim-timeout).
+     * Items that were already interrupted {@code max-attempts} times are failed instead of retried.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<BulkJob> unfinished = transactionTemplate.execute(status -> {
+            if (resetRunningOnStartup) {
+                int reset = bulkJobItemRepository.updateStatus(BulkJobItemStatus.RUNNING, BulkJobItemStatus.PENDING);
+                if (reset > 0) {
+                    log.warn("[BULK_JOB] {} items were interrupted by the last shutdown and will be retried", reset);
+                }
+            }
+            return bulkJobRepository.findByStatusInOrderByIdAsc(UNFINISHED);
+        });
+
+        for (BulkJob job : unfinished) {
+            log.info("[BULK_JOB] Resuming job {} ({} {} of {}, {}/{} done)", job.getId(), job.getSheetType(),
+                    job.getJobType(), job.getCourseName(), job.getProcessedItems(), job.getTotalItems());
+            start(job.getId());
+        }
+    }
+
+    private void start(Long jobId) {
+        jobExecutor.execute(() -> {
+            try {
+                runJob(jobId);
+            } catch (Exception e) {
+                log.error("[BULK_JOB] Job {} failed: {}", jobId, e.getMessage(), e);
+                failJob(jobId, e);
+            }
+        });
+    }
+
+    private void runJob(Long jobId) throws InterruptedException {
+        BulkJob job = transactionTemplate.execute(status -> {
+            BulkJob j = bulkJobRepository.findById(jobId).orElseThrow(() -> new RuntimeException("Job not found: " + jobId));
+            if (j.getStatus() != BulkJobStatus.QUEUED && j.getStatus() != BulkJobStatus.RUNNING) return j;
+            j.setStatus(BulkJobStatus.RUNNING);
+            if (j.getStartedAt() == null) j.setStartedAt(LocalDateTime.now());
+            return bulkJobRepository.save(j);
+        });
+        if (job.getStatus() != BulkJobStatus.RUNNING) {
+            // Cancelled while still queued: nothing ran, but the payload and the teacher's final message are still due
+            if (job.getStatus() == BulkJobStatus.CANCELLED && job.getFinishedAt() == null) {
+                log.info("[BULK_JOB] Job {} was cancelled before it started", jobId);
+                finishJob(jobId, new AnswerDeduplicator());
+            }
+            return;
+        }
+
+        int concurrency = job.getJobType() == BulkJobType.EVALUATION ? evaluationConcurrency
+                : job.isEvaluateOnUpload() ? pipelineMaxInFlight : uploadConcurrency;
+        Semaphore slots = new Semaphore(Math.max(1, concurrency));
+        AnswerDeduplicator deduplicator = new AnswerDeduplicator();
+        Executor workers = taskExecutor.forTenant(new Tenant(job.getCollegeName(), job.getTeacherUsername()));
+        BulkJobProgress progress = new BulkJobProgress(job.getTotalItems(), job.getProcessedItems(), job.getFailedItems());
+        running.put(jobId, progress);
+
+        if (job.getJobType() == BulkJobType.UPLOAD && "streaming".equalsIgnoreCase(uploadIngestion)) {
+            streamUpload(job, slots, workers, deduplicator, progress);
+        }
+
+        // Items not dispatched while streaming (or all items, for evaluations) are claimed and read one by one
+        while (!progress.isCancelled()) {
+            slots.acquire();
+            int free = slots.drainPermits() + 1;
+            List<BulkJobItem> claimed = progress.isCancelled() ? List.of() : claim(jobId, free, progress);
+            slots.release(free - claimed.size());
+
+            if (claimed.isEmpty()) {
+                // Wait for our in-flight items, then finish unless another worker still holds some
+                slots.acquire(Math.max(1, concurrency));
+                slots.release(Math.max(1, concurrency));
+                if (progress.isCancelled() || bulkJobItemRepository.countByJobIdAndStatusIn(jobId, OPEN_ITEMS) == 0) break;
+                TimeUnit.SECONDS.sleep(5);
+                continue;
+            }
+
+            for (BulkJobItem item : claimed) {
+                dispatch(job, item, null, workers, slots, deduplicator, progress);
+            }
+        }
+
+        // Cancelled: stop dispatching, but let the items already handed out finish
+        slots.acquire(Math.max(1, concurrency));
+        finishJob(jobId, deduplicator);
+    }
+
+    /**
+     * Reads the spooled ZIP in one pass and dispatches each student as soon as their folder has been read,
+     * with the pages already in memory. Reading pauses while every slot is busy, so at most one folder per
+     * slot (plus the one being read) is held at a time. Folders that are spread across the ZIP, or whose item
+     * is not claimable right now, are left to the claim loop.
+     */
+    private void streamUpload(BulkJob job, Semaphore slots, Executor workers, AnswerDeduplicator deduplicator,
+                              BulkJobProgress progress) throws InterruptedException {
+        Path zipPath = Paths.get(job.getPayloadPath());
+        try {
+            Map<String, Integer> expected = teacherService.countZipFolderEntries(zipPath);
+            Set<String> streamed = teacherService.streamZipFolders(zipPath, expected, streamBufferLimit.toBytes(),
+                    (folder, files) -> {
+                        if (progress.isCancelled()) return false;
+                        slots.acquire();
+                        List<BulkJobItem> claimed = claimByKey(job.getId(), folder, progress);
+                        if (claimed.isEmpty()) {
+                            slots.release();
+                            return true;
+                        }
+                        dispatch(job, claimed.get(0), files, workers, slots, deduplicator, progress);
+                        return true;
+                    });
+            log.info("[BULK_JOB] Job {} streamed {} of {} student folders from {}", job.getId(), streamed.size(),
+                    expected.size(), zipPath.getFileName());
+        } catch (IOException e) {
+            // Not fatal: the claim loop reads every remaining folder on its own
+            log.warn("[BULK_JOB] Job {} could not stream {}: {}, reading folders one by one", job.getId(),
+                    zipPath.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Hands a claimed item to the task pool, or to the first pipeline stage for pipeline jobs (blocking while
+     * it is full). The item's slot is released once it is finished either way.
+     */
+    private void dispatch(BulkJob job, BulkJobItem item, List<MultipartFile> files, Executor workers, Semaphore slots,
+                          AnswerDeduplicator deduplicator, BulkJobProgress progress) throws InterruptedException {
+        if (job.isEvaluateOnUpload()) {
+            try {
+                pipeline().ingest.put(new PipelineItem(job, item, files, workers, deduplicator, progress, slots::release));
+            } catch (InterruptedException | RuntimeException e) {
+                slots.release();
+                throw e;
+            }
+            return;
+        }
+        workers.execute(() -> {
+            try {
+                process(job, item, files, deduplicator, progress);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * Locks claimable items, marks them RUNNING and commits, so no other dispatcher picks them up.
+     */
+    private List<BulkJobItem> claim(Long jobId, int limit, BulkJobProgress progress) {
+        return transactionTemplate.execute(status -> markClaimed(jobId,
+                bulkJobItemRepository.lockClaimable(jobId, LocalDateTime.now().minus(claimTimeout), limit), progress));
+    }
+
+    private List<BulkJobItem> claimByKey(Long jobId, String itemKey, BulkJobProgress progress) {
+        return transactionTemplate.execute(status -> markClaimed(jobId,
+                bulkJobItemRepository.lockClaimableByKey(jobId, itemKey, LocalDateTime.now().minus(claimTimeout)), progress));
+    }
+
+    private List<BulkJobItem> markClaimed(Long jobId, List<BulkJobItem> items, BulkJobProgress progress) {
+        List<BulkJobItem> claimed = new ArrayList<>(items.size());
+        for (BulkJobItem item : items) {
+            if (item.getAttempts() >= maxAttempts) {
+                item.setStatus(BulkJobItemStatus.FAILED);
+                item.setError("Gave up after " + item.getAttempts() + " interrupted attempts");
+                item.setFinishedAt(LocalDateTime.now());
+                bulkJobRepository.incrementProgress(jobId, 1);
+                progress.recordItem(0, true);
+                continue;
+            }
+            item.setStatus(BulkJobItemStatus.RUNNING);
+            item.setAttempts(item.getAttempts() + 1);
+            item.setClaimedAt(LocalDateTime.now());
+            claimed.add(item);
+        }
+        bulkJobItemRepository.saveAll(items);
+        return claimed;
+    }
+
+    /**
+     * @param files pages of an upload item already read from the ZIP, or null to read them here
+     */
+    private void process(BulkJob job, BulkJobItem item, List<MultipartFile> files, AnswerDeduplicator deduplicator,
+                         BulkJobProgress progress) {
+        long start = System.nanoTime();
+        try {
+            // OCR runs before the transaction; students finish (and are reported) in whatever order OCR answers
+            String ocrText = job.getJobType() == BulkJobType.UPLOAD ? extractUploadText(job, item, files) : null;
+            // So is scoring, which can wait minutes on the scoring service; the transaction only stores results
+            EvaluationService.BulkSheet scored = job.getJobType() == BulkJobType.EVALUATION
+                    ? scoreItem(job, item, deduplicator) : null;
+
+            // The student's result and the item checkpoint commit together
+            Map<String, Object> payload = inItemTransaction(status -> {
+                Map<String, Object> result = saveItem(job, item, ocrText, scored);
+                checkpoint(job.getId(), item.getId(), BulkJobItemStatus.DONE, null, start);
+                return result;
+            });
+            progress.recordItem((System.nanoTime() - start) / 1_000_000, false);
+            notifyItem(job, item, progress, payload, null);
+        } catch (Exception e) {
+            log.warn("[BULK_JOB] Job {} item {} ({}) failed: {}", job.getId(), item.getId(), item.getRollNo(), e.getMessage());
+            inItemTransactionWithoutResult(status ->
+                    checkpoint(job.getId(), item.getId(), BulkJobItemStatus.FAILED, e.getMessage(), start));
+            progress.recordItem((System.nanoTime() - start) / 1_000_000, true);
+            notifyItem(job, item, progress, null, e);
+        }
+    }
+
+    private String extractUploadText(BulkJob job, BulkJobItem item, List<MultipartFile> files) throws IOException {
+        if (files == null) {
+            files = teacherService.readZipFolder(Paths.get(job.getPayloadPath()), item.getItemKey());
+        }
+        log.info("[BULK_UPLOAD] Uploading for rollNo: {}", item.getRollNo());
+        return teacherService.extractAnswerSheetText(item.getRollNo(), files);
+    }
+
+    private EvaluationService.BulkSheet scoreItem(BulkJob job, BulkJobItem item, AnswerDeduplicator deduplicator) {
+        Integer assignmentNumber = job.getAssignmentNumber() != null ? Integer.valueOf(job.getAssignmentNumber()) : null;
+        EvaluationService.BulkSheet sheet = inItemTransaction(status -> evaluationService.prepareBulkItem(
+                item.getItemKey(), job.getCourseName(), job.getSheetType(), assignmentNumber, job.isIncremental()));
+        return evaluationService.scoreBulkItem(sheet, deduplicator);
+    }
+
+    private Map<String, Object> saveItem(BulkJob job, BulkJobItem item, String ocrText, EvaluationService.BulkSheet scored) {
+        if (scored != null) {
+            return evaluationService.saveBulkItem(scored);
+        }
+        teacherService.saveUploadedAnswerSheet(item.getRollNo(), job.getCourseName(), ocrText,
+                job.getSheetType(), job.getAssignmentNumber());
+        return null;
+    }
+
+    private void checkpoint(Long jobId, Long itemId, BulkJobItemStatus outcome, String error, long startNanos) {
+        BulkJobItem item = bulkJobItemRepository.findById(itemId).orElseThrow();
+        item.setStatus(outcome);
+        item.setError(error);
+        item.setFinishedAt(LocalDateTime.now());
+        item.setLatencyMillis((System.nanoTime() - startNanos) / 1_000_000);
+        bulkJobItemRepository.save(item);
+        bulkJobRepository.incrementProgress(jobId, outcome == BulkJobItemStatus.FAILED ? 1 : 0);
+    }
+
+    /**
+     * Runs a transaction of a single item once one of the spring.jobs.max-item-transactions permits is free.
+     * Hundreds of virtual workers may finish OCR or scoring at once; they wait here instead of timing out
+     * in the Hikari queue. Nothing slow may run inside: the permit is held for the whole transaction.
+     */
+    private <T> T inItemTransaction(TransactionCallback<T> action) {
+        itemTransactions.acquireUninterruptibly();
+        try {
+            return transactionTemplate.execute(action);
+        } finally {
+            itemTransactions.release();
+        }
+    }
+
+    private void inItemTransactionWithoutResult(Consumer<TransactionStatus> action) {
+        inItemTransaction(status -> {
+            action.accept(status);
+            return null;
+        });
+    }
+
+    private Pipeline pipeline() {
+        Pipeline current = pipeline;
+        if (current != null) return current;
+        synchronized (this) {
+            if (pipeline == null) {
+                Map<String, Integer> workers = parseStageSizes(pipelineWorkers);
+                Map<String, Integer> capacity = parseStageSizes(pipelineQueueCapacity);
+                pipeline = new Pipeline(workers, capacity);
+                log.info("[PIPELINE] Started upload pipeline stages, workers {}, queue capacity {}", workers, capacity);
+            }
+            return pipeline;
+        }
+    }
+
+    /**
+     * The stages of pipeline upload jobs, wired back to front so each stage knows the next one.
+     * OCR, persist and score run on the shared task pool through the job's tenant executor, so pipeline
+     * jobs take their fair share next to other bulk work; the light stages run on the stage workers.
+     * An item that fails in any stage is checkpointed FAILED and goes straight to notify.
+     */
+    private final class Pipeline {
+        private final PipelineStage<PipelineItem> notify;
+        private final PipelineStage<PipelineItem> score;
+        private final PipelineStage<PipelineItem> persist;
+        private final PipelineStage<PipelineItem> parse;
+        private final PipelineStage<PipelineItem> ocr;
+        private final PipelineStage<PipelineItem> ingest;
+
+        private Pipeline(Map<String, Integer> workers, Map<String, Integer> capacity) {
+            notify = stage("notify", workers, capacity, false, null, BulkJobService.this::notifyPipelineItem);
+            score = stage("score", workers, capacity, true, notify, item -> {
+                Integer assignmentNumber = item.job.getAssignmentNumber() != null
+                        ? Integer.valueOf(item.job.getAssignmentNumber()) : null;
+                // Scored with no transaction open; the student's scores and the item checkpoint then commit together
+                EvaluationService.BulkSheet scored = evaluationService.scoreBulkItem(
+                        inItemTransaction(status -> evaluationService.prepareBulkItem(item.studentUsername,
+                                item.job.getCourseName(), item.job.getSheetType(), assignmentNumber,
+                                item.job.isIncremental())),
+                        item.deduplicator);
+                item.payload = inItemTransaction(status -> {
+                    Map<String, Object> result = evaluationService.saveBulkItem(scored);
+                    checkpoint(item.job.getId(), item.item.getId(), BulkJobItemStatus.DONE, null, item.start);
+                    return result;
+                });
+            });
+            persist = stage("persist", workers, capacity, true, score, item -> {
+                item.studentUsername = inItemTransaction(status -> teacherService.saveUploadedAnswerSheet(
+                        item.item.getRollNo(), item.job.getCourseName(), item.answers, item.job.getSheetType(),
+                        item.job.getAssignmentNumber()));
+                item.answers = null;
+            });
+            parse = stage("parse", workers, capacity, false, persist, item -> {
+                item.answers = answerSheetParser.parse(item.text);
+                item.text = null;
+            });
+            ocr = stage("ocr", workers, capacity, true, parse, item -> {
+                log.info("[BULK_UPLOAD] Uploading for rollNo: {}", item.item.getRollNo());
+                item.text = teacherService.extractAnswerSheetText(item.item.getRollNo(), item.files);
+                item.files = null;
+            });
+            ingest = stage("ingest", workers, capacity, false, ocr, item -> {
+                if (item.files == null) {
+                    item.files = teacherService.readZipFolder(Paths.get(item.job.getPayloadPath()), item.item.getItemKey());
+                }
+            });
+        }
+
+        private PipelineStage<PipelineItem> stage(String name, Map<String, Integer> workers, Map<String, Integer> capacity,
+                                                  boolean onTaskPool, PipelineStage<PipelineItem> next,
+                                                  PipelineStage.Handler<PipelineItem> handler) {
+            return new PipelineStage<PipelineItem>(name, workers.getOrDefault(name, 1), capacity.getOrDefault(name, 8),
+                    onTaskPool ? item -> item.workers : null, handler, next, this::fail, meterRegistry);
+        }
+
+        private void fail(PipelineItem item, Exception error) throws InterruptedException {
+            log.warn("[BULK_JOB] Job {} item {} ({}) failed: {}", item.job.getId(), item.item.getId(),
+                    item.item.getRollNo(), error.getMessage());
+            item.error = error;
+            item.files = null;
+            item.text = null;
+            item.answers = null;
+            inItemTransactionWithoutResult(status ->
+                    checkpoint(item.job.getId(), item.item.getId(), BulkJobItemStatus.FAILED, error.getMessage(), item.start));
+            notify.put(item);
+        }
+    }
+
+    private static final class PipelineItem {
+        private final BulkJob job;
+        private final BulkJobItem item;
+        private final Executor workers;   // the job's tenant view of the shared task pool
+        private final AnswerDeduplicator deduplicator;
+        private final BulkJobProgress progress;
+        private final Runnable done;
+        private final long start = System.nanoTime();
+
+        // Filled in and dropped again as the item moves through the stages
+        private List<MultipartFile> files;
+        private String text;
+        private Map<String, String> answers;
+        private String studentUsername;   // set once the sheet is saved
+        private Map<String, Object> payload;
+        private Exception error;
+
+        private PipelineItem(BulkJob job, BulkJobItem item, List<MultipartFile> files, Executor workers,
+                             AnswerDeduplicator deduplicator, BulkJobProgress progress, Runnable done) {
+            this.job = job;
+            this.item = item;
+            this.files = files;
+            this.workers = workers;
+            this.deduplicator = deduplicator;
+            this.progress = progress;
+            this.done = done;
+        }
+    }
+
+    private void notifyPipelineItem(PipelineItem item) {
+        try {
+            item.progress.recordItem((System.nanoTime() - item.start) / 1_000_000, item.error != null);
+            // Upload progress as for any bulk upload; students whose sheet was saved also get their evaluation result
+            boolean uploaded = item.studentUsername != null;
+            notifyItem(item.job, item.item, item.progress, null, uploaded ? null : item.error);
+            if (uploaded) {
+                notifyEvaluation(item.job, item.item, item.progress, item.payload, item.error);
+            }
+        } catch (RuntimeException e) {
+            // The item is already checkpointed; a lost message must not fail it again
+            log.warn("[PIPELINE] Job {} item {} could not be reported: {}", item.job.getId(), item.item.getId(), e.getMessage());
+        } finally {
+            item.done.run();
+        }
+    }
+
+    // "ingest=1, ocr=4" -> size per stage name
+    private static Map<String, Integer> parseStageSizes(String sizes) {
+        Map<String, Integer> parsed = new LinkedHashMap<>();
+        for (String entry : sizes.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (entry.isBlank()) continue;
+            if (eq <= 0) throw new IllegalArgumentException("Invalid pipeline stage size '" + entry.trim() + "', expected stage=size");
+            parsed.put(entry.substring(0, eq).trim(), Integer.parseInt(entry.substring(eq + 1).trim()));
+        }
+        return parsed;
+    }
+
+    private void finishJob(Long jobId, AnswerDeduplicator deduplicator) {
+        BulkJob job = transactionTemplate.execute(status -> {
+            BulkJob j = bulkJobRepository.findById(jobId).orElseThrow();
+            if (j.getStatus() != BulkJobStatus.CANCELLED) j.setStatus(BulkJobStatus.COMPLETED);
+            j.setFinishedAt(LocalDateTime.now());
+            return bulkJobRepository.save(j);
+        });
+        running.remove(jobId);
+        deletePayload(job);
+        boolean cancelled = job.getStatus() == BulkJobStatus.CANCELLED;
+        log.info("[BULK_JOB] Job {} complete: {}/{} processed, {} failed", jobId,
+                job.getProcessedItems(), job.getTotalItems(), job.getFailedItems());
+
+        if (job.getJobType() == BulkJobType.EVALUATION) {
+            log.info("[BULK_EVALUATE] {} {}: {} distinct answers scored, {} scoring calls saved by deduplication, {} blank answers",
+                    job.getCourseName(), job.getSheetType(), deduplicator.getScored(), deduplicator.getReused(), deduplicator.getBlank());
+            Map<String, Object> complete = new HashMap<>();
+            complete.put("type", "BULK_EVALUATION_COMPLETE");
+            complete.put("jobId", job.getId());
+            complete.put("sheetType", job.getSheetType().name());
+            if (job.getAssignmentNumber() != null) complete.put("assignmentNumber", Integer.valueOf(job.getAssignmentNumber()));
+            complete.put("courseName", job.getCourseName());
+            complete.put("evaluated", job.getProcessedItems() - job.getFailedItems());
+            complete.put("failed", job.getFailedItems());
+            complete.put("distinctAnswersScored", deduplicator.getScored());
+            complete.put("scoringCallsSaved", deduplicator.getReused());
+            complete.put("cancelled", cancelled);
+            messagingTemplate.convertAndSend("/topic/evaluations/" + job.getTeacherUsername(), complete);
+        } else {
+            messagingTemplate.convertAndSend("/topic/teacher/" + job.getTeacherUsername(), Map.of(
+                    "type", "BULK_UPLOAD_COMPLETE",
+                    "jobId", job.getId(),
+                    "courseName", job.getCourseName(),
+                    "sheetType", job.getSheetType().toString(),
+                    "evaluated", job.isEvaluateOnUpload(),
+                    "cancelled", cancelled
+            ));
+        }
+    }
+
+    private void failJob(Long jobId, Exception cause) {
+        running.remove(jobId);
+        BulkJob job = transactionTemplate.execute(status -> bulkJobRepository.findById(jobId).map(j -> {
+            j.setStatus(BulkJobStatus.FAILED);
+            j.setError(cause.getMessage());
+            j.setFinishedAt(LocalDateTime.now());
+            return bulkJobRepository.save(j);
+        }).orElse(null));
+        if (job == null) return;
+
+        deletePayload(job);
+        String topic = job.getJobType() == BulkJobType.UPLOAD ? "/topic/teacher/" : "/topic/evaluations/";
+        messagingTemplate.convertAndSend(topic + job.getTeacherUsername(), Map.of(
+                "type", job.getJobType() == BulkJobType.UPLOAD ? "BULK_UPLOAD_FATAL" : "BULK_EVALUATION_FATAL",
+                "jobId", job.getId(),
+                "message", "❌ Fatal error: " + cause.getMessage()
+        ));
+    }
+
+    private void notifyItem(BulkJob job, BulkJobItem item, BulkJobProgress progress, Map<String, Object> payload, Exception error) {
+        boolean success = error == null;
+        int completed = progress.getProcessed();
+        int total = Math.max(1, progress.getTotal());
+        String teacher = job.getTeacherUsername();
+
+        if (job.getJobType() == BulkJobType.UPLOAD) {
+            messagingTemplate.convertAndSend("/topic/teacher/" + teacher, Map.of(
+                    "type", "BULK_UPLOAD_PROGRESS",
+                    "jobId", job.getId(),
+                    "rollNo", item.getRollNo(),
+                    "courseName", job.getCourseName(),
+                    "status", success ? "✅ Upload success" : "❌ Failed: " + error.getMessage(),
+                    "progress", (completed * 100) / total
+            ));
+            return;
+        }
+
+        notifyEvaluation(job, item, progress, payload, error);
+    }
+
+    private void notifyEvaluation(BulkJob job, BulkJobItem item, BulkJobProgress progress, Map<String, Object> payload,
+                                  Exception error) {
+        boolean success = error == null;
+        int completed = progress.getProcessed();
+        int total = Math.max(1, progress.getTotal());
+        String teacher = job.getTeacherUsername();
+
+        messagingTemplate.convertAndSend("/topic/teacher/" + teacher, Map.of(
+                "type", "BULK_EVALUATE_PROGRESS",
+                "jobId", job.getId(),
+                "rollNo", item.getRollNo(),
+                "courseName", job.getCourseName(),
+                "status", success ? "✅ Evaluation Success" : "❌ Evaluation Failed",
+                "progress", (completed * 100) / total
+        ));
+
+        if (!success) {
+            payload = new HashMap<>();
+            payload.put("type", job.getSheetType() + "_EVALUATION_FAILURE");
+            payload.put("message", "❌ Failed: " + error.getMessage());
+            payload.put("studentUsername", item.getRollNo());
+            payload.put("courseName", job.getCourseName());
+            if (job.getAssignmentNumber() != null) payload.put("assignmentNumber", Integer.valueOf(job.getAssignmentNumber()));
+        }
+        payload.put("jobId", job.getId());
+        payload.put("progress", (completed * 100) / total);
+        messagingTemplate.convertAndSend("/topic/evaluations/" + teacher, payload);
+    }
+
+    /**
+     * Status of a job of the given teacher: live counters while this instance runs it, otherwise the
+     * persisted counts with latencies taken from the item rows.
+     */
+    public BulkJobStatusDto getStatus(Long jobId, String teacherUsername) {
+        BulkJob job = findOwnedJob(jobId, teacherUsername);
+        BulkJobProgress progress = running.get(jobId);
+
+        BulkJobStatusDto.BulkJobStatusDtoBuilder status = BulkJobStatusDto.builder()
+                .jobId(job.getId())
+                .jobType(job.getJobType().name())
+                .sheetType(job.getSheetType() != null ? job.getSheetType().name() : null)
+                .courseName(job.getCourseName())
+                .assignmentNumber(job.getAssignmentNumber())
+                .status(job.getStatus().name())
+                .evaluateOnUpload(job.isEvaluateOnUpload())
+                .total(job.getTotalItems())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt());
+
+        if (progress != null) {
+            return status
+                    .processed(progress.getProcessed())
+                    .failed(progress.getFailed())
+                    .throughputPerMinute(progress.getThroughputPerMinute())
+                    .p50LatencyMillis(progress.getLatencyPercentileMillis(0.50))
+                    .p95LatencyMillis(progress.getLatencyPercentileMillis(0.95))
+                    .etaSeconds(progress.isCancelled() ? null : progress.getEtaSeconds())
+                    .build();
+        }
+
+        List<Long> latencies = new ArrayList<>(bulkJobItemRepository.findLatencyMillisByJobId(jobId));
+        Collections.sort(latencies);
+        Double throughput = null;
+        if (job.getStartedAt() != null && job.getFinishedAt() != null) {
+            double minutes = Duration.between(job.getStartedAt(), job.getFinishedAt()).toMillis() / 60_000.0;
+            throughput = minutes > 0 ? job.getProcessedItems() / minutes : null;
+        }
+        return status
+                .processed(job.getProcessedItems())
+                .failed(job.getFailedItems())
+                .throughputPerMinute(throughput)
+                .p50LatencyMillis(percentile(latencies, 0.50))
+                .p95LatencyMillis(percentile(latencies, 0.95))
+                .build();
+    }
+
+    public List<BulkJobStatusDto> getRecentJobs(String teacherUsername) {
+        return bulkJobRepository.findTop20ByTeacherUsernameOrderByIdDesc(teacherUsername).stream()
+                .map(job -> getStatus(job.getId(), teacherUsername))
+                .toList();
+    }
+
+    /**
+     * Stops dispatching the job's remaining items. Items already being processed still finish.
+     */
+    public BulkJobStatusDto cancel(Long jobId, String teacherUsername) {
+        transactionTemplate.executeWithoutResult(status -> {
+            BulkJob job = findOwnedJob(jobId, teacherUsername);
+            if (job.getStatus() != BulkJobStatus.QUEUED && job.getStatus() != BulkJobStatus.RUNNING) {
+                throw new BadRequestException("❌ Job " + jobId + " is already " + job.getStatus());
+            }
+            job.setStatus(BulkJobStatus.CANCELLED);
+            bulkJobRepository.save(job);
+            int skipped = bulkJobItemRepository.updateStatusForJob(jobId, BulkJobItemStatus.PENDING, BulkJobItemStatus.CANCELLED);
+            log.info("[BULK_JOB] Job {} cancelled by {}, {} items will not be processed", jobId, teacherUsername, skipped);
+        });
+
+        BulkJobProgress progress = running.get(jobId);
+        if (progress != null) progress.cancel();
+        return getStatus(jobId, teacherUsername);
+    }
+
+    private String collegeOf(String teacherUsername) {
+        return teacherRepository.findByUsername(teacherUsername)
+                .map(teacher -> teacher.getCollege() != null ? teacher.getCollege().getName() : null)
+                .orElse(null);
+    }
+
+    private BulkJob findOwnedJob(Long jobId, String teacherUsername) {
+        BulkJob job = bulkJobRepository.findById(jobId)
+                .orElseThrow(() -> new BadRequestException("❌ Job not found: " + jobId));
+        if (!job.getTeacherUsername().equals(teacherUsername)) {
+            throw new BadRequestException("❌ Job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private static Long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) return null;
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    private void deletePayload(BulkJob job) {
+        if (job.getPayloadPath() == null) return;
+        try {
+            Files.deleteIfExists(Paths.get(job.getPayloadPath()));
+        } catch (IOException e) {
+            log.warn("[BULK_JOB] Could not delete spooled file {}: {}", job.getPayloadPath(), e.getMessage());
+        }
+    }
+
+    private static BulkJobItem pendingItem(Long jobId, String itemKey, String rollNo) {
+        return BulkJobItem.builder()
+                .jobId(jobId)
+                .itemKey(itemKey)
+                .rollNo(rollNo)
+                .status(BulkJobItemStatus.PENDING)
+                .build();
+    }
+}
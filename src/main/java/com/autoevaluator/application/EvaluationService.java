@@ -1,6 +1,7 @@
 package com.autoevaluator.application;
 
 import com.autoevaluator.adapter.handler.rest.ErrorResponse;
+import com.autoevaluator.application.AnswerKeyModelCache.CompiledAnswerKey;
 import com.autoevaluator.domain.dto.AnswerScoreDto;
 import com.autoevaluator.domain.dto.CompareAnswersRequest;
 import com.autoevaluator.domain.dto.CompareAnswersResponse;
@@ -12,6 +13,8 @@ import com.autoevaluator.domain.repositories.EnrolmentRepository;
 import com.autoevaluator.domain.repositories.QuestionPaperRepository;
 import com.autoevaluator.domain.repositories.StudentRepository;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
@@ -22,14 +25,9 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
 
-import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -41,8 +39,19 @@ public class EvaluationService {
     private final QuestionPaperRepository questionPaperRepository;
 
 
-    @Value("${spring.scoring.api-url}")
-    private String scoringApiUrl;
+    private final NliAnswerScorer nliAnswerScorer;
+    private final LexicalAnswerScorer lexicalAnswerScorer;
+    private final ScoreCache scoreCache;
+    private final AnswerKeyModelCache answerKeyModelCache;
+    private final ParsedAnswerStore parsedAnswerStore;
+
+
+    @Value("${spring.scoring.scorer:nli}")
+    private String scorerMode;
+    @Value("${spring.scoring.fallback-to-lexical:true}")
+    private boolean fallbackToLexical;
+    private static final String PROVISIONAL_FEEDBACK_PREFIX = "[Provisional - scoring service unavailable] ";
+    private static final Logger log = LoggerFactory.getLogger(EvaluationService.class);
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
@@ -160,67 +169,42 @@ public class EvaluationService {
     }
 
     public List<EvaluationResponseDto> evaluateMidterm(Student student, String courseName) throws Exception {
-
-
-        Course course = courseRepository.findByCourseName(courseName)
-                .orElseThrow(() -> new RuntimeException("Course not found"));
-
-        Enrolment enrolment = student.getEnrolments().stream()
-                .filter(e -> e.getCourse().getId().equals(course.getId()))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Enrolment not found for this student and course"));
-
-        String answerText = enrolment.getMidtermAnswerSheetText();
-
-        if (answerText.isEmpty())
-            throw new RuntimeException(String.format("❌ No answer sheet found for student: %s", student.getRollNo()));
-
-        QuestionPaper paper = questionPaperRepository.findByCourse_CourseNameAndIsMidtermTrue(courseName)
-                .orElseThrow(() -> new RuntimeException("Midterm paper not found"));
-
-        List<EvaluationResponseDto> dtos = evaluate(answerText, paper, enrolment, AnswerSheetType.MIDTERM,null);
-
-        double total = dtos.stream().mapToDouble(EvaluationResponseDto::getMarksObtained).sum();
-        enrolment.setMidtermMarks((double) total);
-        enrolmentRepository.save(enrolment);
-
+        SheetSource sheet = loadSheet(student, courseName, AnswerSheetType.MIDTERM, null);
+        List<EvaluationResponseDto> dtos = evaluate(sheet);
+        recordTotal(sheet, dtos);
         return dtos;
     }
 
     public List<EvaluationResponseDto> evaluateEndterm(Student student, String courseName) {
-
-        Course course = courseRepository.findByCourseName(courseName)
-                .orElseThrow(() -> new RuntimeException("Course not found"));
-
-        Enrolment enrolment = student.getEnrolments().stream()
-                .filter(e -> e.getCourse().getId().equals(course.getId()))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Enrolment not found for this student and course"));
-
-        String answerText = enrolment.getEndtermAnswerSheetText();
-
-        QuestionPaper paper = questionPaperRepository.findByCourse_CourseNameAndIsEndtermTrue(courseName)
-                .orElseThrow(() -> new BadRequestException("Endterm paper not found , can't evaluate"));
-
-        List<EvaluationResponseDto> dtos = evaluate(answerText, paper, enrolment, AnswerSheetType.ENDTERM,null);
-
-        double total = dtos.stream().mapToDouble(EvaluationResponseDto::getMarksObtained).sum();
-        enrolment.setEndtermMarks((double) total);
-        enrolmentRepository.save(enrolment);
-
+        SheetSource sheet = loadSheet(student, courseName, AnswerSheetType.ENDTERM, null);
+        List<EvaluationResponseDto> dtos = evaluate(sheet);
+        recordTotal(sheet, dtos);
         return dtos;
     }
+
     public Double evaluateAssignment(Student student, String courseName, int assignmentNo) {
-        // ✅ Check if assignment question paper exists
-        boolean exists = questionPaperRepository
-                .findByCourse_CourseNameAndIsAssignmentTrueAndAssignmentNumber(courseName, assignmentNo)
-                .isPresent();
+        SheetSource sheet = loadSheet(student, courseName, AnswerSheetType.ASSIGNMENT, assignmentNo);
+        return recordTotal(sheet, evaluate(sheet));
+    }
 
-        if (!exists) {
-            throw new BadRequestException("Assignment not created yet , upload rejected");
+    /**
+     * A student's answer sheet of one type with everything needed to score it and store its scores.
+     * The submission is only set for assignments.
+     */
+    private record SheetSource(Student student, Enrolment enrolment, AssignmentSubmission submission,
+                               QuestionPaper paper, AnswerSheetType type, Map<String, String> answers) {
 
+        List<AnswerScore> scores() {
+            return submission != null ? submission.getAnswerScores() : enrolment.getAnswerScores();
         }
+    }
 
+    private SheetSource loadSheet(Student student, String courseName, AnswerSheetType type, Integer assignmentNo) {
+        // ✅ Check if assignment question paper exists
+        if (type == AnswerSheetType.ASSIGNMENT && questionPaperRepository
+                .findByCourse_CourseNameAndIsAssignmentTrueAndAssignmentNumber(courseName, assignmentNo).isEmpty()) {
+            throw new BadRequestException("Assignment not created yet , upload rejected");
+        }
 
         Course course = courseRepository.findByCourseName(courseName)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
@@ -228,82 +212,200 @@ public class EvaluationService {
         Enrolment enrolment = student.getEnrolments().stream()
                 .filter(e -> e.getCourse().getId().equals(course.getId()))
                 .findFirst()
-                .orElseThrow(() -> new RuntimeException("Enrolment not found"));
-
-        // Find the assignment submission for the given assignment number
-        AssignmentSubmission assignmentSubmission = enrolment.getAssignments().stream()
-                .filter(a -> a.getAssignmentNumber() != null
-                        && Integer.parseInt(a.getAssignmentNumber()) == assignmentNo)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Assignment submission not found"));
+                .orElseThrow(() -> new RuntimeException("Enrolment not found for this student and course"));
 
-        String answerText = assignmentSubmission.getAssignmentSheetText();
+        switch (type) {
+            case MIDTERM -> {
+                String answerText = enrolment.getMidtermAnswerSheetText();
+                if (answerText == null || answerText.isEmpty())
+                    throw new RuntimeException(String.format("❌ No answer sheet found for student: %s", student.getRollNo()));
+                Map<String, String> answers = parsedAnswerStore.load(enrolment.getId(), AnswerSheetType.MIDTERM, null, answerText);
 
-        // Use questionPaperRepository to fetch the assignment paper
-        QuestionPaper paper = questionPaperRepository
-                .findByCourse_CourseNameAndIsAssignmentTrueAndAssignmentNumber(courseName, assignmentNo)
-                .orElseThrow(() -> new BadRequestException("Assignment paper not found"));
+                QuestionPaper paper = questionPaperRepository.findByCourse_CourseNameAndIsMidtermTrue(courseName)
+                        .orElseThrow(() -> new RuntimeException("Midterm paper not found"));
+                return new SheetSource(student, enrolment, null, paper, type, answers);
+            }
+            case ENDTERM -> {
+                Map<String, String> answers = parsedAnswerStore.load(enrolment.getId(), AnswerSheetType.ENDTERM, null,
+                        enrolment.getEndtermAnswerSheetText());
 
-        List<EvaluationResponseDto> dtos = evaluate(answerText, paper, enrolment, AnswerSheetType.ASSIGNMENT,assignmentSubmission);
+                QuestionPaper paper = questionPaperRepository.findByCourse_CourseNameAndIsEndtermTrue(courseName)
+                        .orElseThrow(() -> new BadRequestException("Endterm paper not found , can't evaluate"));
+                return new SheetSource(student, enrolment, null, paper, type, answers);
+            }
+            case ASSIGNMENT -> {
+                // Find the assignment submission for the given assignment number
+                AssignmentSubmission assignmentSubmission = enrolment.getAssignments().stream()
+                        .filter(a -> a.getAssignmentNumber() != null
+                                && Integer.parseInt(a.getAssignmentNumber()) == assignmentNo)
+                        .findFirst()
+                        .orElseThrow(() -> new RuntimeException("Assignment submission not found"));
+
+                Map<String, String> answers = parsedAnswerStore.load(enrolment.getId(), AnswerSheetType.ASSIGNMENT,
+                        assignmentSubmission.getAssignmentNumber(), assignmentSubmission.getAssignmentSheetText());
+
+                // Use questionPaperRepository to fetch the assignment paper
+                QuestionPaper paper = questionPaperRepository
+                        .findByCourse_CourseNameAndIsAssignmentTrueAndAssignmentNumber(courseName, assignmentNo)
+                        .orElseThrow(() -> new BadRequestException("Assignment paper not found"));
+                return new SheetSource(student, enrolment, assignmentSubmission, paper, type, answers);
+            }
+            default -> throw new BadRequestException("Invalid sheet type for evaluation: " + type);
+        }
+    }
 
+    /**
+     * Stores the sheet total on the enrolment (or the assignment submission) and saves the enrolment.
+     */
+    private double recordTotal(SheetSource sheet, List<EvaluationResponseDto> dtos) {
         double total = dtos.stream().mapToDouble(EvaluationResponseDto::getMarksObtained).sum();
+        switch (sheet.type()) {
+            case MIDTERM -> sheet.enrolment().setMidtermMarks(total);
+            case ENDTERM -> sheet.enrolment().setEndtermMarks(total);
+            default -> sheet.submission().setMarks(total);
+        }
+        // Save changes cascading through enrolment
+        enrolmentRepository.save(sheet.enrolment());
+        return total;
+    }
 
-        // Store marks on the assignment submission
-        assignmentSubmission.setMarks((double) total);
+    private List<EvaluationResponseDto> evaluate(SheetSource sheet) {
+        SheetPlan plan = planSheet(sheet, false);
+        return applyScores(sheet, plan, scoreSheet(plan, null));
+    }
 
-        // Save changes cascading through enrolment
-        enrolmentRepository.save(enrolment);
+    /**
+     * The scoring requests of a sheet in question order, with the marks of the questions an incremental run
+     * keeps (null where the question is rescored) and the fingerprint of every answer.
+     */
+    record SheetPlan(List<CompiledAnswerKey> keys, List<CompareAnswersRequest> requests, String[] fingerprints,
+                     Double[] keptMarks, List<Integer> toScore) {
+    }
+
+    private SheetPlan planSheet(SheetSource sheet, boolean incremental) {
+        // In incremental mode, previous scores whose fingerprint still matches are kept as they are.
+        // Provisional marks are never kept, whatever their fingerprint says.
+        Map<String, AnswerScore> previous = new HashMap<>();
+        if (incremental) {
+            for (AnswerScore score : sheet.scores()) {
+                if (score.getType() == sheet.type() && score.getFingerprint() != null && !isProvisional(score)) {
+                    previous.put(score.getAnswerLabel(), score);
+                }
+            }
+        }
 
-        return (double) total;
+        // Collect every (teacher_answer, student_answer, total_marks) triple of the sheet first,
+        // so the whole sheet can be scored in a single round trip when the scorer supports it.
+        // The keys come precompiled per paper version, so nothing about them is recomputed per student.
+        List<CompiledAnswerKey> keys = answerKeyModelCache.get(sheet.paper()).keys();
+        List<CompareAnswersRequest> scoringRequests = new ArrayList<>(keys.size());
+        String[] fingerprints = new String[keys.size()];
+        Double[] keptMarks = new Double[keys.size()];
+        List<Integer> toScore = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            CompiledAnswerKey key = keys.get(i);
+            String studentAnswer = sheet.answers().getOrDefault("Ans" + key.questionNumber(), "");
+            scoringRequests.add(buildScoringRequest(key.correctAnswer(), studentAnswer, key.marks()));
+            fingerprints[i] = scoreCache.fingerprintFor(key.normalizedAnswer(), studentAnswer, key.marks(),
+                    scorerIdentity(), false);
+
+            AnswerScore kept = previous.get(key.questionNumber());
+            if (kept != null && fingerprints[i].equals(kept.getFingerprint())) {
+                keptMarks[i] = kept.getObtainedMarks();
+            } else {
+                toScore.add(i);
+            }
+        }
+        if (incremental) {
+            log.info("[EVALUATE] Incremental evaluation of {} {}: rescoring {} of {} questions",
+                    sheet.student().getRollNo(), sheet.type(), toScore.size(), keys.size());
+        }
+        return new SheetPlan(keys, scoringRequests, fingerprints, keptMarks, toScore);
     }
-    private List<EvaluationResponseDto> evaluate(String answerSheetText,
-                                                 QuestionPaper paper,
-                                                 Enrolment enrolment,
-                                                 AnswerSheetType type,
-                                                 AssignmentSubmission assignmentSubmission) {
 
-        Map<String, String> answerMap = parseAnswerSheetText(answerSheetText);
+    /**
+     * Scores the questions the plan rescores; touches no entity, so it needs no transaction.
+     */
+    private SheetScores scoreSheet(SheetPlan plan, AnswerDeduplicator deduplicator) {
+        return scoreAnswerSheet(plan.toScore().stream().map(plan.requests()::get).toList(),
+                plan.toScore().stream().map(plan.keys()::get).toList(), deduplicator);
+    }
 
-        // Clear previous scores of the same type
-        if (type == AnswerSheetType.ASSIGNMENT && assignmentSubmission != null) {
-            assignmentSubmission.getAnswerScores().clear();
-        } else {
-            enrolment.getAnswerScores().removeIf(score -> score.getType() == type);
+    /**
+     * Replaces the sheet's previous scores with the scored questions, keeping the rows of the questions the
+     * plan kept. Runs in the caller's transaction.
+     */
+    private List<EvaluationResponseDto> applyScores(SheetSource sheet, SheetPlan plan, SheetScores sheetScores) {
+        List<CompiledAnswerKey> keys = plan.keys();
+        List<AnswerScore> sheetScoresList = sheet.scores();
+
+        // Drop the previous scores of this sheet type, except one unchanged row per kept question
+        Map<String, String> keptFingerprints = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (plan.keptMarks()[i] != null) {
+                keptFingerprints.put(keys.get(i).questionNumber(), plan.fingerprints()[i]);
+            }
+        }
+        sheetScoresList.removeIf(score -> {
+            if (sheet.submission() == null && score.getType() != sheet.type()) return false;
+            String keptFingerprint = keptFingerprints.get(score.getAnswerLabel());
+            if (keptFingerprint != null && keptFingerprint.equals(score.getFingerprint())) {
+                keptFingerprints.remove(score.getAnswerLabel());
+                return false;
+            }
+            return true;
+        });
+
+        CompareAnswersResponse[] responses = new CompareAnswersResponse[keys.size()];
+        for (int j = 0; j < plan.toScore().size(); j++) {
+            responses[plan.toScore().get(j)] = sheetScores.responses().get(j);
         }
 
         List<EvaluationResponseDto> responseList = new ArrayList<>();
 
-        for (Question question : paper.getQuestions()) {
-            String qNo = question.getQuestionNumber();
-            String studentAnswer = answerMap.getOrDefault("Ans" + qNo, "");
-            String correctAnswer = question.getAnswerKey() != null ? question.getAnswerKey().getCorrectAnswer() : "";
-            int questionMarks = question.getMarks().intValue();
+        for (int i = 0; i < keys.size(); i++) {
+            String qNo = keys.get(i).questionNumber();
+            String studentAnswer = plan.requests().get(i).getStudent_answer();
+            String correctAnswer = plan.requests().get(i).getTeacher_answer();
+            int questionMarks = keys.get(i).marks();
+
+            if (plan.keptMarks()[i] != null) {
+                responseList.add(EvaluationResponseDto.builder()
+                        .questionNumber(qNo)
+                        .teacherAnswer(correctAnswer)
+                        .studentAnswer(studentAnswer)
+                        .marksObtained(plan.keptMarks()[i])
+                        .totalMarks(questionMarks)
+                        .build());
+                continue;
+            }
 
-            CompareAnswersResponse response = callScoringApi(correctAnswer, studentAnswer, questionMarks);
+            CompareAnswersResponse response = responses[i];
             String feedback = "";
             if(response.getScore()==0)
                 feedback= "No answer provided";
             else
                 feedback= FeedbackGenerator.generateFeedback(response.getEntailment(),response.getNeutral(),response.getContradiction());
+            if (sheetScores.provisional())
+                feedback = PROVISIONAL_FEEDBACK_PREFIX + feedback;
 
             AnswerScore answerScore = AnswerScore.builder()
                     .answerLabel(qNo)
                     .obtainedMarks(response.getScore())
                     .totalMarks(questionMarks)
                     .answerText(studentAnswer)
-                    .type(type)
-                    .enrolment(enrolment)
-                    .assignmentSubmission(assignmentSubmission)
+                    .type(sheet.type())
+                    .enrolment(sheet.enrolment())
+                    .assignmentSubmission(sheet.submission())
                     .feedback(feedback)
+                    // Provisional marks are fingerprinted as such, so the next incremental run rescores them
+                    .fingerprint(sheetScores.provisional()
+                            ? scoreCache.fingerprintFor(keys.get(i).normalizedAnswer(), studentAnswer, questionMarks,
+                                    "lexical", true)
+                            : plan.fingerprints()[i])
                     .build();
 
-
-            // Add to correct location
-            if (type == AnswerSheetType.ASSIGNMENT && assignmentSubmission != null) {
-                assignmentSubmission.getAnswerScores().add(answerScore);
-            } else {
-                enrolment.getAnswerScores().add(answerScore);
-            }
+            sheetScoresList.add(answerScore);
 
             responseList.add(EvaluationResponseDto.builder()
                     .questionNumber(qNo)
@@ -318,65 +420,6 @@ public class EvaluationService {
     }
 
 
-    private Map<String, String> parseAnswerSheetText(String text) {
-        if (text == null || text.trim().isEmpty()) return Collections.emptyMap();
-
-        // We'll store in insertion order (LinkedHashMap) to keep question order intact
-        Map<String, String> result = new LinkedHashMap<>();
-
-        Pattern answerStartPattern = Pattern.compile("(?i)[^a-zA-Z0-9]*?(ans|ams|axs|ars)[\\s:!.-]*(\\d+)\\s*(.*)?");
-
-
-        String currentKey = null;
-        StringBuilder currentAnswer = new StringBuilder();
-
-        String[] lines = text.split("\\r?\\n");
-
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
-
-            Matcher matcher = answerStartPattern.matcher(line);
-            if (matcher.matches()) {
-                // Save previous answer
-                if (currentKey != null && currentAnswer.length() > 0) {
-                    result.put(currentKey, currentAnswer.toString().trim());
-                    currentAnswer.setLength(0);
-                }
-
-                // Start new answer
-                String number = matcher.group(2);
-                currentKey = "Ans" + number;
-
-                String inlineAnswer = matcher.group(3);
-                if (inlineAnswer != null && !inlineAnswer.isBlank()) {
-                    currentAnswer.append(inlineAnswer.trim()).append(" ");
-                }
-
-            } else {
-                if (currentKey != null) {
-                    currentAnswer.append(line).append(" ");
-                }
-            }
-        }
-
-        // Save the final answer
-        if (currentKey != null && currentAnswer.length() > 0) {
-            result.put(currentKey, currentAnswer.toString().trim());
-        }
-
-        // Sort by numeric suffix of the key (e.g., "Ans1", "Ans2", ...)
-        return result.entrySet().stream()
-                .sorted(Comparator.comparingInt(e -> Integer.parseInt(e.getKey().substring(3))))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (oldVal, newVal) -> oldVal,
-                        LinkedHashMap::new
-                ));
-    }
-
-
     public List<AnswerScoreDto> viewMidtermScores(String studentUsername, String courseName) {
         Student student = studentRepository.findByUsername(studentUsername)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -458,53 +501,222 @@ public class EvaluationService {
                 .toList();
     }
 
-    public CompareAnswersResponse callScoringApi(String correctAnswer, String studentAnswer, int questionMarks) {
-        if (studentAnswer == null || studentAnswer.trim().isEmpty()) {
-            CompareAnswersResponse emptyResponse = new CompareAnswersResponse();
-            emptyResponse.setScore(0.0);
-            emptyResponse.setEntailment(0.0);
-            emptyResponse.setNeutral(0.0);
-            emptyResponse.setContradiction(0.0);
-            return emptyResponse;
+    /**
+     * Scores every answer of a sheet, keeping the order of the given requests.
+     * Blank answers are scored locally and previously seen answers come from the score cache;
+     * the rest go to the configured scorer (spring.scoring.scorer). If the NLI service fails and
+     * spring.scoring.fallback-to-lexical is on, the sheet gets provisional lexical marks instead.
+     */
+    public SheetScores scoreAnswerSheet(List<CompareAnswersRequest> requests) {
+        return scoreAnswerSheet(requests, null);
+    }
+
+    /**
+     * As {@link #scoreAnswerSheet(List)}, with the compiled answer key of each request (same order) so
+     * cache keys and lexical scores reuse the precomputed key forms; {@code keys} may be null.
+     */
+    SheetScores scoreAnswerSheet(List<CompareAnswersRequest> requests, List<CompiledAnswerKey> keys) {
+        CompareAnswersResponse[] results = new CompareAnswersResponse[requests.size()];
+        List<Integer> pending = new ArrayList<>();
+        String[] cacheKeys = new String[requests.size()];
+        boolean useCache = scoreCache.isEnabled() && !isLexicalMode();
+
+        for (int i = 0; i < requests.size(); i++) {
+            if (isBlank(requests.get(i).getStudent_answer())) {
+                results[i] = noAnswerResponse();
+            } else {
+                pending.add(i);
+                if (useCache) {
+                    CompareAnswersRequest request = requests.get(i);
+                    cacheKeys[i] = keys != null
+                            ? scoreCache.keyFor(keys.get(i).normalizedAnswer(), request.getStudent_answer(), request.getTotal_marks())
+                            : scoreCache.keyFor(request);
+                }
+            }
         }
 
-        try {
-            CompareAnswersRequest requestBody = new CompareAnswersRequest();
-            requestBody.setTeacher_answer(correctAnswer);
-            requestBody.setStudent_answer(studentAnswer);
-            requestBody.setTotal_marks(questionMarks);
-
-            CompareAnswersResponse response = WebClient.create()
-                    .post()
-                    .uri(scoringApiUrl)  // ✅ using your variable
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(BodyInserters.fromValue(requestBody))
-                    .retrieve()
-                    .bodyToMono(CompareAnswersResponse.class)
-                    .timeout(Duration.ofSeconds(20))
-                    .block();
-
-            if (response == null) {
-                throw new RuntimeException("Scoring API returned no response");
+        // Answers scored before with the same key text, marks and scorer version are served from cache
+        if (useCache && !pending.isEmpty()) {
+            Map<String, CompareAnswersResponse> cached = scoreCache.getAll(pending.stream().map(i -> cacheKeys[i]).toList());
+            pending.removeIf(i -> {
+                CompareAnswersResponse hit = cached.get(cacheKeys[i]);
+                if (hit == null) return false;
+                results[i] = hit;
+                return true;
+            });
+        }
+
+        if (pending.isEmpty()) {
+            return new SheetScores(Arrays.asList(results), false);
+        }
+
+        List<CompareAnswersRequest> toScore = pending.stream().map(requests::get).toList();
+        List<CompareAnswersResponse> scored;
+        boolean provisional = false;
+
+        if (isLexicalMode()) {
+            scored = scoreLexically(toScore, pending, keys);
+        } else if (fallbackToLexical && !nliAnswerScorer.isAvailable()) {
+            // Breaker is open: don't park the sheet in the limiter queue, grade it provisionally now
+            scored = scoreLexically(toScore, pending, keys);
+            provisional = true;
+        } else {
+            try {
+                scored = nliAnswerScorer.scoreAll(toScore);
+            } catch (RuntimeException e) {
+                if (!fallbackToLexical) throw e;
+                log.warn("[SCORING] NLI scoring failed ({}), using provisional lexical scores for {} answers",
+                        e.getMessage(), toScore.size());
+                scored = scoreLexically(toScore, pending, keys);
+                provisional = true;
             }
+        }
 
-            return response;
+        for (int i = 0; i < pending.size(); i++) {
+            results[pending.get(i)] = scored.get(i);
+        }
 
-        } catch (Exception e) {
-            if (isTimeoutException(e)) {
-                throw new RuntimeException("Scoring API timed out after 20 seconds", e);
+        // Provisional marks are never cached, so the next evaluation asks the NLI service again
+        if (useCache && !provisional) {
+            Map<String, CompareAnswersResponse> fresh = new HashMap<>();
+            for (int i : pending) {
+                fresh.put(cacheKeys[i], results[i]);
+            }
+            try {
+                scoreCache.putAll(fresh);
+            } catch (Exception e) {
+                log.warn("[SCORE_CACHE] Failed to store {} scores: {}", fresh.size(), e.getMessage());
+            }
+        }
+        return new SheetScores(Arrays.asList(results), provisional);
+    }
+
+    /**
+     * Scores a sheet of a bulk run, reusing the score of any answer another sheet of the run already has
+     * (or is currently getting). Pairs this sheet claims are scored as one sheet, then shared.
+     */
+    SheetScores scoreAnswerSheet(List<CompareAnswersRequest> requests, List<CompiledAnswerKey> keys,
+                                 AnswerDeduplicator deduplicator) {
+        if (deduplicator == null) {
+            return scoreAnswerSheet(requests, keys);
+        }
+
+        CompareAnswersResponse[] results = new CompareAnswersResponse[requests.size()];
+        String[] dedupKeys = new String[requests.size()];
+        List<Integer> owned = new ArrayList<>();
+        Map<Integer, CompletableFuture<AnswerDeduplicator.SharedScore>> shared = new LinkedHashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            CompareAnswersRequest request = requests.get(i);
+            if (isBlank(request.getStudent_answer())) {
+                results[i] = noAnswerResponse();
+                deduplicator.blankAnswer();
+                continue;
+            }
+            dedupKeys[i] = scoreCache.keyFor(keys.get(i).normalizedAnswer(), request.getStudent_answer(), request.getTotal_marks());
+            CompletableFuture<AnswerDeduplicator.SharedScore> existing = deduplicator.claim(dedupKeys[i]);
+            if (existing == null) {
+                owned.add(i);
+            } else {
+                shared.put(i, existing);
             }
-            throw new RuntimeException("Failed to call Scoring API: " + e.getMessage(), e);
         }
+
+        boolean provisional = false;
+        if (!owned.isEmpty()) {
+            int completed = 0;
+            try {
+                SheetScores ownScores = scoreAnswerSheet(owned.stream().map(requests::get).toList(),
+                        owned.stream().map(keys::get).toList());
+                provisional = ownScores.provisional();
+                for (; completed < owned.size(); completed++) {
+                    int i = owned.get(completed);
+                    results[i] = ownScores.responses().get(completed);
+                    deduplicator.complete(dedupKeys[i], results[i], provisional);
+                }
+            } finally {
+                // Whatever went wrong (Errors included), release the other sheets waiting on our claims
+                for (int j = completed; j < owned.size(); j++) {
+                    deduplicator.fail(dedupKeys[owned.get(j)],
+                            new IllegalStateException("Scoring of the claiming sheet failed"));
+                }
+            }
+        }
+
+        // Only wait for other sheets after our own claims are completed, so sheets never wait on each other in a cycle
+        List<Integer> retry = new ArrayList<>();
+        for (Map.Entry<Integer, CompletableFuture<AnswerDeduplicator.SharedScore>> entry : shared.entrySet()) {
+            AnswerDeduplicator.SharedScore score = deduplicator.await(entry.getValue());
+            if (score != null) {
+                results[entry.getKey()] = score.response();
+                provisional |= score.provisional();
+            } else {
+                retry.add(entry.getKey());
+            }
+        }
+        if (!retry.isEmpty()) {
+            SheetScores retried = scoreAnswerSheet(retry.stream().map(requests::get).toList(),
+                    retry.stream().map(keys::get).toList());
+            provisional |= retried.provisional();
+            for (int j = 0; j < retry.size(); j++) {
+                results[retry.get(j)] = retried.responses().get(j);
+            }
+        }
+        return new SheetScores(Arrays.asList(results), provisional);
+    }
+
+    /**
+     * Scores of one sheet in question order; provisional when produced by the lexical fallback.
+     */
+    public record SheetScores(List<CompareAnswersResponse> responses, boolean provisional) {
     }
 
-    private boolean isTimeoutException(Throwable e) {
-        while (e != null) {
-            if (e instanceof java.util.concurrent.TimeoutException ||
-                    e instanceof java.net.SocketTimeoutException) return true;
-            e = e.getCause();
+    private List<CompareAnswersResponse> scoreLexically(List<CompareAnswersRequest> toScore, List<Integer> pending,
+                                                        List<CompiledAnswerKey> keys) {
+        if (keys == null) {
+            return lexicalAnswerScorer.scoreAll(toScore);
         }
-        return false;
+        return lexicalAnswerScorer.scoreAll(toScore, pending.stream().map(i -> keys.get(i).tokens()).toList());
+    }
+
+    private boolean isLexicalMode() {
+        return "lexical".equalsIgnoreCase(scorerMode);
+    }
+
+    /**
+     * Scorer that produces final marks in the current configuration; part of every score fingerprint.
+     */
+    private String scorerIdentity() {
+        return isLexicalMode() ? "lexical" : "nli";
+    }
+
+    private static boolean isProvisional(AnswerScore score) {
+        return score.getFeedback() != null && score.getFeedback().startsWith(PROVISIONAL_FEEDBACK_PREFIX);
+    }
+
+    private CompareAnswersRequest buildScoringRequest(String correctAnswer, String studentAnswer, int questionMarks) {
+        CompareAnswersRequest requestBody = new CompareAnswersRequest();
+        requestBody.setTeacher_answer(correctAnswer);
+        requestBody.setStudent_answer(studentAnswer);
+        requestBody.setTotal_marks(questionMarks);
+        return requestBody;
+    }
+
+    private CompareAnswersResponse noAnswerResponse() {
+        CompareAnswersResponse emptyResponse = new CompareAnswersResponse();
+        emptyResponse.setScore(0.0);
+        emptyResponse.setEntailment(0.0);
+        emptyResponse.setNeutral(0.0);
+        emptyResponse.setContradiction(0.0);
+        return emptyResponse;
+    }
+
+    private boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+
+    public CompareAnswersResponse callScoringApi(String correctAnswer, String studentAnswer, int questionMarks) {
+        return scoreAnswerSheet(List.of(buildScoringRequest(correctAnswer, studentAnswer, questionMarks))).responses().get(0);
     }
 
     public List<AnswerScoreDto> viewMidtermRawAnswers(String studentUsername, String courseName) {
@@ -515,7 +727,8 @@ public class EvaluationService {
                 .filter(e -> e.getCourse().getCourseName().equals(courseName))
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Enrolment for course not found"));
-        return parseRawAnswers(enrolment.getMidtermAnswerSheetText(), AnswerSheetType.MIDTERM);
+        return toRawAnswers(parsedAnswerStore.load(enrolment.getId(), AnswerSheetType.MIDTERM, null,
+                enrolment.getMidtermAnswerSheetText()), AnswerSheetType.MIDTERM);
     }
 
     public List<AnswerScoreDto> viewEndtermRawAnswers(String studentUsername, String courseName) {
@@ -526,7 +739,8 @@ public class EvaluationService {
                 .filter(e -> e.getCourse().getCourseName().equals(courseName))
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Enrolment for course not found"));
-        return parseRawAnswers(enrolment.getEndtermAnswerSheetText(), AnswerSheetType.ENDTERM);
+        return toRawAnswers(parsedAnswerStore.load(enrolment.getId(), AnswerSheetType.ENDTERM, null,
+                enrolment.getEndtermAnswerSheetText()), AnswerSheetType.ENDTERM);
     }
 
     public List<AnswerScoreDto> viewAssignmentRawAnswers(String studentUsername, String courseName, int assignmentNo) {
@@ -541,13 +755,11 @@ public class EvaluationService {
                 .filter(a -> a.getAssignmentNumber().equals(String.valueOf(assignmentNo)))
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Assignment not found"));
-        return parseRawAnswers(submission.getAssignmentSheetText(), AnswerSheetType.ASSIGNMENT);
+        return toRawAnswers(parsedAnswerStore.load(enrolment.getId(), AnswerSheetType.ASSIGNMENT,
+                submission.getAssignmentNumber(), submission.getAssignmentSheetText()), AnswerSheetType.ASSIGNMENT);
     }
 
-    private List<AnswerScoreDto> parseRawAnswers(String rawText, AnswerSheetType type) {
-        if (rawText == null || rawText.isBlank()) return List.of();
-
-        Map<String, String> answerMap = parseAnswerSheetText(rawText); // same method from earlier
+    private List<AnswerScoreDto> toRawAnswers(Map<String, String> answerMap, AnswerSheetType type) {
         return answerMap.entrySet().stream()
                 .map(entry -> AnswerScoreDto.builder()
                         .answerLabel(entry.getKey())
@@ -559,180 +771,62 @@ public class EvaluationService {
                 .toList();
     }
 
-    @Async("externalTaskExecutor")
-    @Transactional
-    @Retryable(
-            value = { Exception.class },
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 2000))
-    public void bulkEvaluateMidtermAsync(String courseName, String teacherUsername) throws Exception {
-        List<Enrolment> enrolments = enrolmentRepository.findByCourse_CourseName(courseName);
-        int total = enrolments.size();
-        int completed = 0;
-
-        for (Enrolment enrolment : enrolments) {
-            String studentUsername = enrolment.getStudent().getUsername();
-            String rollNo = enrolment.getStudent().getRollNo();
-            try {
-                Student student = enrolment.getStudent();
-                List<EvaluationResponseDto> result = evaluateMidterm(student, courseName);
-                double totalMarks = result.stream().mapToDouble(EvaluationResponseDto::getMarksObtained).sum();
-
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("type", "MIDTERM_EVALUATION_SUCCESS");
-                payload.put("message", "✅ Midterm evaluated.");
-                payload.put("studentUsername", rollNo);
-                payload.put("courseName", courseName);
-                payload.put("totalMarks", totalMarks);
-                payload.put("collegeName", student.getCollege().getName());
-                payload.put("departmentName", student.getDepartment().getName());
-                payload.put("semester", student.getSemester());
-
-                completed++;
-                payload.put("progress", (completed * 100) / total);
-                notifyProgress(teacherUsername, student.getRollNo(), courseName, completed, total, "✅ Evaluation Success");
-                notifyStructuredClient2(teacherUsername, payload);
-
-            } catch (Exception e) {
-                completed++;
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("type", "MIDTERM_EVALUATION_FAILURE");
-                payload.put("message", "❌ Failed: " );
-                payload.put("studentUsername",rollNo );
-                payload.put("courseName", courseName);
-                payload.put("progress", (completed * 100) / total);
-                notifyProgress(teacherUsername, enrolment.getStudent().getRollNo(), courseName, completed, total, "❌ Evaluation Failed");
-                notifyStructuredClient2(teacherUsername, payload);
-                throw  e;
-            }
-        }
-
-
-        messagingTemplate.convertAndSend("/topic/evaluations/" + teacherUsername, Map.of(
-                "type", "BULK_EVALUATION_COMPLETE",
-                "sheetType", "MIDTERM",
-                "courseName", courseName
-        ));
+    /**
+     * A student's sheet of a bulk evaluation job (see BulkJobService), planned in a short read-only transaction.
+     * Scores are null until {@link #scoreBulkItem} has run.
+     */
+    record BulkSheet(String studentUsername, String courseName, AnswerSheetType type, Integer assignmentNumber,
+                     SheetPlan plan, SheetScores scores) {
     }
 
-    @Async("externalTaskExecutor")
-    @Transactional
-    public void bulkEvaluateEndtermAsync(String courseName, String teacherUsername) {
-        List<Enrolment> enrolments = enrolmentRepository.findByCourse_CourseName(courseName);
-        int total = enrolments.size();
-        int completed = 0;
-
-        for (Enrolment enrolment : enrolments) {
-            String studentUsername = enrolment.getStudent().getUsername();
-            String rollNo = enrolment.getStudent().getRollNo();
-
-            try {
-                Student student = enrolment.getStudent();
-                List<EvaluationResponseDto> result = evaluateEndterm(student, courseName);
-                double totalMarks = result.stream().mapToDouble(EvaluationResponseDto::getMarksObtained).sum();
-
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("type", "ENDTERM_EVALUATION_SUCCESS");
-                payload.put("message", "✅ Endterm evaluated.");
-                payload.put("studentUsername", rollNo);
-                payload.put("courseName", courseName);
-                payload.put("totalMarks", totalMarks);
-                payload.put("collegeName", student.getCollege().getName());
-                payload.put("departmentName", student.getDepartment().getName());
-                payload.put("semester", student.getSemester());
-
-                completed++;
-                payload.put("progress", (completed * 100) / total);
-                notifyProgress(teacherUsername, rollNo, courseName, completed, total, "✅ Evaluation Success");
-                notifyStructuredClient2(teacherUsername, payload);
-            } catch (Exception e) {
-                completed++;
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("type", "ENDTERM_EVALUATION_FAILURE");
-                payload.put("message", "❌ Failed: " + e.getMessage());
-                payload.put("studentUsername", rollNo);
-                payload.put("courseName", courseName);
-                payload.put("progress", (completed * 100) / total);
-                notifyProgress(teacherUsername, rollNo, courseName, completed, total, "❌ Evaluation Failed");
-                notifyStructuredClient2(teacherUsername, payload);
-                throw  e;
-            }
-        }
-
-        messagingTemplate.convertAndSend("/topic/evaluations/" + teacherUsername, Map.of(
-                "type", "BULK_EVALUATION_COMPLETE",
-                "sheetType", "ENDTERM",
-                "courseName", courseName
-        ));
-    }
-    @Async("externalTaskExecutor")
-    @Transactional
-    public void bulkEvaluateAssignmentAsync(String courseName, int assignmentNumber, String teacherUsername) {
-        List<Enrolment> enrolments = enrolmentRepository.findByCourse_CourseName(courseName);
-        int total = enrolments.size();
-        int completed = 0;
-
-        for (Enrolment enrolment : enrolments) {
-            String studentUsername = enrolment.getStudent().getUsername();
-            String rollNo = enrolment.getStudent().getRollNo();
-
-            try {
-                Student student = enrolment.getStudent();
-                Double marks = evaluateAssignment(student, courseName, assignmentNumber);
-
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("type", "ASSIGNMENT_EVALUATION_SUCCESS");
-                payload.put("message", "✅ Assignment evaluated.");
-                payload.put("studentUsername", rollNo);
-                payload.put("courseName", courseName);
-                payload.put("assignmentNumber", assignmentNumber);
-                payload.put("totalMarks", marks);
-                payload.put("collegeName", student.getCollege().getName());
-                payload.put("departmentName", student.getDepartment().getName());
-                payload.put("semester", student.getSemester());
-
-                completed++;
-                payload.put("progress", (completed * 100) / total);
-                notifyProgress(teacherUsername, rollNo, courseName, completed, total, "✅ Evaluation Success");
-                notifyStructuredClient2(teacherUsername, payload);
-            } catch (Exception e) {
-                completed++;
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("type", "ASSIGNMENT_EVALUATION_FAILURE");
-                payload.put("message", "❌ Failed: " + e.getMessage());
-                payload.put("studentUsername", rollNo);
-                payload.put("courseName", courseName);
-                payload.put("assignmentNumber", assignmentNumber);
-                payload.put("progress", (completed * 100) / total);
-                notifyProgress(teacherUsername, rollNo, courseName, completed, total, "❌ Evaluation Failed");
-                notifyStructuredClient2(teacherUsername, payload);
-            }
-        }
-
-        messagingTemplate.convertAndSend("/topic/evaluations/" + teacherUsername, Map.of(
-                "type", "BULK_EVALUATION_COMPLETE",
-                "sheetType", "ASSIGNMENT",
-                "assignmentNumber", assignmentNumber,
-                "courseName", courseName
-        ));
+    /**
+     * Reads the student's answers and previous scores and works out which questions need scoring.
+     */
+    @Transactional(readOnly = true)
+    public BulkSheet prepareBulkItem(String studentUsername, String courseName, AnswerSheetType sheetType,
+                                     Integer assignmentNumber, boolean incremental) {
+        Student student = studentRepository.findByUsername(studentUsername)
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+        SheetSource sheet = loadSheet(student, courseName, sheetType, assignmentNumber);
+        return new BulkSheet(studentUsername, courseName, sheetType, assignmentNumber,
+                planSheet(sheet, incremental), null);
     }
 
-    private void notifyStructuredClient2(String teacherUsername, Map<String, Object> payload) {
-
-        messagingTemplate.convertAndSend("/topic/evaluations/" + teacherUsername, payload);
+    /**
+     * Scores a prepared sheet. Must be called with no transaction open: it may wait on the scoring service,
+     * its limiter queue and other sheets of the run, and holding a DB connection all that time starves the pool.
+     */
+    public BulkSheet scoreBulkItem(BulkSheet sheet, AnswerDeduplicator deduplicator) {
+        return new BulkSheet(sheet.studentUsername(), sheet.courseName(), sheet.type(), sheet.assignmentNumber(),
+                sheet.plan(), scoreSheet(sheet.plan(), deduplicator));
     }
 
-    private void notifyProgress(String teacherUsername, String rollNo, String courseName, int completed, int total, String statusMessage) {
-        messagingTemplate.convertAndSend("/topic/teacher/" + teacherUsername, Map.of(
-                "type", "BULK_EVALUATE_PROGRESS",
-                "rollNo", rollNo,
-                "courseName", courseName,
-                "status", statusMessage,
-                "progress", (completed * 100) / total
-        ));
+    /**
+     * Stores the scores of a scored sheet in the caller's transaction and returns the success payload to send
+     * once that transaction has committed.
+     */
+    @Transactional
+    public Map<String, Object> saveBulkItem(BulkSheet scored) {
+        Student student = studentRepository.findByUsername(scored.studentUsername())
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+        SheetSource sheet = loadSheet(student, scored.courseName(), scored.type(), scored.assignmentNumber());
+        double totalMarks = recordTotal(sheet, applyScores(sheet, scored.plan(), scored.scores()));
+
+        AnswerSheetType sheetType = scored.type();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("type", sheetType + "_EVALUATION_SUCCESS");
+        payload.put("message", switch (sheetType) {
+            case MIDTERM -> "✅ Midterm evaluated.";
+            case ENDTERM -> "✅ Endterm evaluated.";
+            default -> "✅ Assignment evaluated.";
+        });
+        payload.put("studentUsername", student.getRollNo());
+        payload.put("courseName", scored.courseName());
+        if (scored.assignmentNumber() != null) payload.put("assignmentNumber", scored.assignmentNumber());
+        payload.put("totalMarks", totalMarks);
+        payload.put("collegeName", student.getCollege().getName());
+        payload.put("departmentName", student.getDepartment().getName());
+        payload.put("semester", student.getSemester());
+        return payload;
     }
-
-
-
-
 }
@@ -0,0 +1,163 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersRequest;
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-JVM scorer based on lexical overlap, used as a fast path and as the degraded-mode fallback
+ * when the NLI scoring service is down.
+ *
+ * Answers are tokenized, stop words removed and lightly stemmed; the similarity is the mean of the
+ * TF-IDF cosine between key and answer and the weighted coverage of the key's most important terms.
+ * It cannot detect contradictions, so those marks should be treated as provisional.
+ */
+@Component
+public class LexicalAnswerScorer implements AnswerScorer {
+
+    private static final int KEY_TERMS = 12;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "and", "or", "but", "if", "then", "else", "of", "to", "in", "on", "at", "by",
+            "for", "with", "about", "as", "into", "from", "up", "down", "over", "under", "is", "are", "was",
+            "were", "be", "been", "being", "am", "do", "does", "did", "has", "have", "had", "it", "its", "this",
+            "that", "these", "those", "there", "here", "which", "who", "whom", "what", "when", "where", "why",
+            "how", "can", "could", "will", "would", "shall", "should", "may", "might", "must", "so", "such",
+            "than", "too", "very", "also", "not", "no", "nor", "only", "own", "same", "each", "any", "all",
+            "both", "few", "more", "most", "other", "some", "i", "we", "you", "he", "she", "they", "them",
+            "their", "our", "your", "his", "her", "my", "me", "us", "ans", "answer");
+
+    @Override
+    public List<CompareAnswersResponse> scoreAll(List<CompareAnswersRequest> requests) {
+        List<List<String>> keys = new ArrayList<>(requests.size());
+        for (CompareAnswersRequest request : requests) {
+            keys.add(tokenize(request.getTeacher_answer()));
+        }
+        return scoreAll(requests, keys);
+    }
+
+    /**
+     * Scores against answer keys tokenized ahead of time (see AnswerKeyModelCache); {@code keys} holds
+     * the tokens of each request's teacher answer, in request order.
+     */
+    public List<CompareAnswersResponse> scoreAll(List<CompareAnswersRequest> requests, List<List<String>> keys) {
+        List<List<String>> answers = new ArrayList<>(requests.size());
+        for (CompareAnswersRequest request : requests) {
+            answers.add(tokenize(request.getStudent_answer()));
+        }
+
+        // Document frequencies over every key and answer in this call, each text counted once
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (List<String> tokens : keys) countDocument(tokens, documentFrequency);
+        for (List<String> tokens : answers) countDocument(tokens, documentFrequency);
+        int documents = keys.size() + answers.size();
+
+        List<CompareAnswersResponse> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Map<String, Double> keyVector = tfIdf(keys.get(i), documentFrequency, documents);
+            Map<String, Double> answerVector = tfIdf(answers.get(i), documentFrequency, documents);
+            double similarity = similarity(keyVector, answerVector);
+            results.add(toResponse(similarity, requests.get(i).getTotal_marks()));
+        }
+        return results;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                String token = current.toString();
+                current.setLength(0);
+                if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                    tokens.add(stem(token));
+                }
+            }
+        }
+        return tokens;
+    }
+
+    // Crude suffix stripping, enough to match "process"/"processes"/"processing"
+    static String stem(String token) {
+        if (token.length() > 5 && token.endsWith("ing")) return token.substring(0, token.length() - 3);
+        if (token.length() > 4 && token.endsWith("ed")) return token.substring(0, token.length() - 2);
+        if (token.length() > 4 && token.endsWith("es")) return token.substring(0, token.length() - 2);
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) return token.substring(0, token.length() - 1);
+        return token;
+    }
+
+    static Map<String, Double> tfIdf(List<String> tokens, Map<String, Integer> documentFrequency, int documents) {
+        Map<String, Double> vector = new HashMap<>();
+        for (String token : tokens) {
+            vector.merge(token, 1.0, Double::sum);
+        }
+        vector.replaceAll((term, tf) ->
+                tf * (Math.log((1.0 + documents) / (1.0 + documentFrequency.getOrDefault(term, 0))) + 1.0));
+        return vector;
+    }
+
+    /**
+     * Mean of the TF-IDF cosine and the weighted coverage of the key's top terms, in [0, 1].
+     */
+    static double similarity(Map<String, Double> keyVector, Map<String, Double> answerVector) {
+        if (keyVector.isEmpty() || answerVector.isEmpty()) return 0.0;
+        return (cosine(keyVector, answerVector) + keyTermCoverage(keyTerms(keyVector), answerVector)) / 2.0;
+    }
+
+    static Map<String, Double> keyTerms(Map<String, Double> keyVector) {
+        Map<String, Double> terms = new HashMap<>();
+        keyVector.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(KEY_TERMS)
+                .forEach(e -> terms.put(e.getKey(), e.getValue()));
+        return terms;
+    }
+
+    static double keyTermCoverage(Map<String, Double> keyTerms, Map<String, Double> answerVector) {
+        double total = 0, covered = 0;
+        for (Map.Entry<String, Double> term : keyTerms.entrySet()) {
+            total += term.getValue();
+            if (answerVector.containsKey(term.getKey())) covered += term.getValue();
+        }
+        return total == 0 ? 0.0 : covered / total;
+    }
+
+    static double cosine(Map<String, Double> a, Map<String, Double> b) {
+        Map<String, Double> smaller = a.size() <= b.size() ? a : b;
+        Map<String, Double> larger = smaller == a ? b : a;
+
+        double dot = 0;
+        for (Map.Entry<String, Double> e : smaller.entrySet()) {
+            Double other = larger.get(e.getKey());
+            if (other != null) dot += e.getValue() * other;
+        }
+        double norm = norm(a) * norm(b);
+        return norm == 0 ? 0.0 : dot / norm;
+    }
+
+    private static double norm(Map<String, Double> vector) {
+        double sum = 0;
+        for (double value : vector.values()) sum += value * value;
+        return Math.sqrt(sum);
+    }
+
+    private static void countDocument(List<String> tokens, Map<String, Integer> documentFrequency) {
+        for (String term : new HashSet<>(tokens)) {
+            documentFrequency.merge(term, 1, Integer::sum);
+        }
+    }
+
+    // Lexical overlap says nothing about contradiction, so the remainder is reported as neutral
+    static CompareAnswersResponse toResponse(double similarity, double totalMarks) {
+        double clamped = Math.max(0.0, Math.min(1.0, similarity));
+        double score = Math.round(clamped * totalMarks * 2) / 2.0; // nearest half mark
+        return new CompareAnswersResponse(score, clamped, 1.0 - clamped, 0.0);
+    }
+}
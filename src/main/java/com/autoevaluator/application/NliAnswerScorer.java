@@ -0,0 +1,66 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersRequest;
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+import com.autoevaluator.util.WorkPriority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Scores answers with the remote NLI scoring service: one batch request per sheet when the service
+ * supports it, otherwise one request per question fanned out with bounded concurrency.
+ */
+@Component
+public class NliAnswerScorer implements AnswerScorer {
+
+    private final ScoringClient scoringClient;
+
+    @Value("${spring.scoring.batch-enabled:true}")
+    private boolean batchScoringEnabled;
+    @Value("${spring.scoring.max-concurrency:4}")
+    private int scoringConcurrency;
+
+    public NliAnswerScorer(ScoringClient scoringClient) {
+        this.scoringClient = scoringClient;
+    }
+
+    public boolean isAvailable() {
+        return scoringClient.isAvailable();
+    }
+
+    @Override
+    public List<CompareAnswersResponse> scoreAll(List<CompareAnswersRequest> requests) {
+        // Captured here: the per-question calls below are subscribed on reactor threads
+        WorkPriority priority = WorkPriority.current();
+
+        if (batchScoringEnabled && scoringClient.isBatchEndpointAvailable() && requests.size() > 1) {
+            List<CompareAnswersResponse> batchResults = scoringClient.scoreBatch(requests, priority);
+            if (batchResults != null) {
+                return batchResults;
+            }
+        }
+
+        // Fan the questions out concurrently; each result carries its index so the
+        // sheet is reassembled in question order whatever order the responses arrive in
+        List<Map.Entry<Integer, CompareAnswersResponse>> scored = Flux.fromStream(IntStream.range(0, requests.size()).boxed())
+                .flatMap(index -> scoringClient.score(requests.get(index), priority)
+                        .map(response -> Map.entry(index, response)), scoringConcurrency)
+                .collectList()
+                .block();
+
+        CompareAnswersResponse[] results = new CompareAnswersResponse[requests.size()];
+        if (scored != null) {
+            for (Map.Entry<Integer, CompareAnswersResponse> entry : scored) {
+                results[entry.getKey()] = entry.getValue();
+            }
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+}
@@ -1,7 +1,14 @@
 package com.autoevaluator.application;
 
+import com.autoevaluator.util.RequestHedger;
 import com.fasterxml.jackson.databind.JsonNode;
-import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -9,69 +16,118 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
-import reactor.netty.http.client.HttpClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeoutException;
 
 @Component
 public class OcrClient {
 
-    private final WebClient webClient;
-
-    public OcrClient() {
-        // Load from environment or fallback
-        String ocrUrl = System.getenv("OCR_URL");
-        if (ocrUrl == null || ocrUrl.isBlank()) {
-            ocrUrl = Dotenv.configure().ignoreIfMissing().load().get("OCR_URL", "http://localhost:8000");
-        }
+    private static final Logger log = LoggerFactory.getLogger(OcrClient.class);
 
-        // Configure WebClient with 20s timeout
-        HttpClient httpClient = HttpClient.create()
-                .responseTimeout(Duration.ofSeconds(20));
+    private final WebClient webClient;
+    private final OcrPageCache pageCache;
+    private final OcrImagePreprocessor preprocessor;
+    private final RequestHedger hedger;
+    // Bounds calls to the OCR service however many task threads are waiting on it
+    private final Semaphore permits;
+    private final int chunkSize;
+    private final int chunkRetries;
+    private final Duration chunkRetryBackoff;
+    private final Counter chunkRetriesSent;
 
-        this.webClient = WebClient.builder()
-                .baseUrl(ocrUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .build();
+    public OcrClient(@Qualifier("ocrWebClient") WebClient webClient,
+                     OcrPageCache pageCache,
+                     OcrImagePreprocessor preprocessor,
+                     MeterRegistry meterRegistry,
+                     @Value("${spring.ocr.hedge.enabled:false}") boolean hedgeEnabled,
+                     @Value("${spring.ocr.hedge.percentile:0.95}") double hedgePercentile,
+                     @Value("${spring.ocr.hedge.budget-percent:5}") double hedgeBudgetPercent,
+                     @Value("${spring.ocr.hedge.min-delay:2s}") Duration hedgeMinDelay,
+                     @Value("${spring.ocr.max-concurrency:8}") int maxConcurrency,
+                     @Value("${spring.ocr.chunk.size:4}") int chunkSize,
+                     @Value("${spring.ocr.chunk.retries:2}") int chunkRetries,
+                     @Value("${spring.ocr.chunk.retry-backoff:1s}") Duration chunkRetryBackoff) {
+        // Shared pooled client, see WebClientConfig (base URL from OCR_URL, 20s response timeout)
+        this.webClient = webClient;
+        this.pageCache = pageCache;
+        this.preprocessor = preprocessor;
+        this.hedger = new RequestHedger("ocr", meterRegistry, hedgeEnabled, hedgePercentile,
+                hedgeBudgetPercent, hedgeMinDelay);
+        this.permits = new Semaphore(maxConcurrency, true);
+        Gauge.builder("ocr.inflight", permits, p -> maxConcurrency - p.availablePermits()).register(meterRegistry);
+        Gauge.builder("ocr.queued", permits, Semaphore::getQueueLength).register(meterRegistry);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkRetries = Math.max(0, chunkRetries);
+        this.chunkRetryBackoff = chunkRetryBackoff;
+        this.chunkRetriesSent = Counter.builder("ocr.chunk.retries").register(meterRegistry);
     }
 
+    /**
+     * Text of the pages in order. Pages are sent in chunks of spring.ocr.chunk.size pages, all chunks at once
+     * (within spring.ocr.max-concurrency), and a chunk that fails or times out is retried on its own, so a long
+     * sheet takes about as long as its slowest chunk instead of one request carrying every page.
+     *
+     * The service returns one joined extracted_text per request, with nothing marking where each page ends,
+     * so a multi-page chunk's text cannot be split back into pages. With the page cache on, the cache entry is
+     * therefore the chunk: a page when spring.ocr.chunk.size is 1, otherwise the chunk's pages in sheet order.
+     * Chunks already read come from the cache and only the rest are sent. Pages sent to the service are
+     * pre-processed first if spring.ocr.preprocess.enabled is set.
+     */
     public String extractText(List<MultipartFile> files) {
         try {
-            MultiValueMap<String, Object> formData = new LinkedMultiValueMap<>();
-
+            List<Page> pages = new ArrayList<>(files.size());
             for (MultipartFile file : files) {
-                byte[] fileBytes = file.getBytes();
-                ByteArrayResource resource = new ByteArrayResource(fileBytes) {
-                    @Override
-                    public String getFilename() {
-                        return file.getOriginalFilename(); // Required for multipart
-                    }
-                };
-                formData.add("files", resource); // Match FastAPI param name: "files"
+                pages.add(new Page(file.getOriginalFilename(), file.getBytes()));
+            }
+            if (!pageCache.isEnabled()) {
+                return String.join("\n", requestChunks(chunks(preprocess(pages), chunkSize)));
             }
 
-            JsonNode json = webClient.post()
-                    .uri("/getTextFromImage/")
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .body(BodyInserters.fromMultipartData(formData))
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .timeout(Duration.ofSeconds(20)) // Per-request timeout
-                    .block();
-
-            if (json == null) {
-                throw new RuntimeException("OCR API returned no response");
+            // Keyed on the uploaded bytes, so cached pages are never pre-processed again
+            List<List<Page>> chunks = chunks(pages, chunkSize);
+            List<String> keys = new ArrayList<>(chunks.size());
+            for (List<Page> chunk : chunks) {
+                keys.add(pageCache.keyFor(chunk.stream()
+                        .map(page -> pageCache.keyFor(page.bytes(), preprocessor.signature()))
+                        .toList()));
             }
+            Map<String, String> cached = cachedPages(keys);
 
-            if (!json.has("extracted_text")) {
-                throw new RuntimeException("OCR API response missing 'extracted_text' field: " + json);
+            Map<String, List<Page>> missing = new LinkedHashMap<>(); // the same chunk twice in one sheet is read once
+            for (int i = 0; i < chunks.size(); i++) {
+                if (!cached.containsKey(keys.get(i))) missing.putIfAbsent(keys.get(i), chunks.get(i));
             }
+            List<String> missingKeys = new ArrayList<>(missing.keySet());
 
-            return json.get("extracted_text").asText();
+            List<String> read = requestChunks(preprocessChunks(new ArrayList<>(missing.values())));
+            Map<String, String> fresh = new HashMap<>();
+            for (int i = 0; i < read.size(); i++) {
+                fresh.put(missingKeys.get(i), read.get(i));
+            }
+            if (!cached.isEmpty()) {
+                log.info("[OCR] {} of {} chunks served from the OCR cache", keys.stream().filter(cached::containsKey).count(), chunks.size());
+            }
+            storePages(fresh);
+
+            List<String> texts = new ArrayList<>(pages.size());
+            for (String key : keys) {
+                texts.add(cached.containsKey(key) ? cached.get(key) : fresh.get(key));
+            }
+            return String.join("\n", texts);
 
         } catch (Exception e) {
             if (isTimeoutException(e)) {
@@ -82,6 +138,136 @@ public class OcrClient {
         }
     }
 
+    private List<Page> preprocess(List<Page> pages) {
+        if (!preprocessor.isEnabled()) return pages;
+
+        List<byte[]> processed = preprocessor.processAll(pages.stream().map(Page::bytes).toList());
+        List<Page> result = new ArrayList<>(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            byte[] bytes = processed.get(i);
+            // Re-encoded pages are JPEGs whatever they were uploaded as
+            result.add(bytes == page.bytes() ? page : new Page(asJpegName(page.filename()), bytes));
+        }
+        return result;
+    }
+
+    // Pre-processes all pages of the chunks in one batch, keeping the chunk boundaries
+    private List<List<Page>> preprocessChunks(List<List<Page>> chunks) {
+        if (!preprocessor.isEnabled()) return chunks;
+
+        List<Page> processed = preprocess(chunks.stream().flatMap(List::stream).toList());
+        List<List<Page>> result = new ArrayList<>(chunks.size());
+        int from = 0;
+        for (List<Page> chunk : chunks) {
+            result.add(processed.subList(from, from + chunk.size()));
+            from += chunk.size();
+        }
+        return result;
+    }
+
+    private static String asJpegName(String filename) {
+        if (filename == null) return "page.jpg";
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0 ? filename.substring(0, dot) : filename) + ".jpg";
+    }
+
+    private static List<List<Page>> chunks(List<Page> pages, int size) {
+        List<List<Page>> chunks = new ArrayList<>((pages.size() + size - 1) / size);
+        for (int from = 0; from < pages.size(); from += size) {
+            chunks.add(pages.subList(from, Math.min(pages.size(), from + size)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Sends every chunk without waiting for the previous one and returns their texts in chunk order.
+     * The calling thread only blocks for OCR permits and for the results.
+     */
+    private List<String> requestChunks(List<List<Page>> chunks) throws InterruptedException {
+        List<CompletableFuture<String>> pending = new ArrayList<>(chunks.size());
+        try {
+            for (List<Page> chunk : chunks) {
+                permits.acquire();
+                // Held across the chunk's retries, released once it succeeds or gives up
+                pending.add(requestChunk(chunk).doFinally(signal -> permits.release()).toFuture());
+            }
+        } catch (InterruptedException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw e;
+        }
+
+        List<String> texts = new ArrayList<>(chunks.size());
+        for (CompletableFuture<String> future : pending) {
+            try {
+                texts.add(future.join());
+            } catch (CompletionException e) {
+                pending.forEach(other -> other.cancel(true));
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage(), cause);
+            }
+        }
+        return texts;
+    }
+
+    private Mono<String> requestChunk(List<Page> pages) {
+        MultiValueMap<String, Object> formData = new LinkedMultiValueMap<>();
+
+        for (Page page : pages) {
+            ByteArrayResource resource = new ByteArrayResource(page.bytes()) {
+                @Override
+                public String getFilename() {
+                    return page.filename(); // Required for multipart
+                }
+            };
+            formData.add("files", resource); // Match FastAPI param name: "files"
+        }
+
+        // A stalled OCR call may be hedged with a duplicate request (spring.ocr.hedge.*)
+        return hedger.hedge(() -> hedger.measure(webClient.post()
+                        .uri("/getTextFromImage/")
+                        .contentType(MediaType.MULTIPART_FORM_DATA)
+                        .body(BodyInserters.fromMultipartData(formData))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .timeout(Duration.ofSeconds(20)))) // Per-request timeout
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("OCR API returned no response")))
+                .map(json -> {
+                    if (!json.has("extracted_text")) {
+                        throw new RuntimeException("OCR API response missing 'extracted_text' field: " + json);
+                    }
+                    return json.get("extracted_text").asText();
+                })
+                // Only this chunk is sent again; a rejected request (4xx) would fail the same way every time
+                .retryWhen(Retry.backoff(chunkRetries, chunkRetryBackoff)
+                        .filter(e -> !(e instanceof WebClientResponseException response
+                                && response.getStatusCode().is4xxClientError()))
+                        .doBeforeRetry(signal -> {
+                            chunkRetriesSent.increment();
+                            log.warn("[OCR] Retrying chunk of {} pages (attempt {}): {}", pages.size(),
+                                    signal.totalRetries() + 2, signal.failure().getMessage());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    // The cache only saves OCR calls; when the database is unavailable every page is simply read again
+    private Map<String, String> cachedPages(List<String> keys) {
+        try {
+            return pageCache.getAll(new HashSet<>(keys));
+        } catch (Exception e) {
+            log.warn("[OCR] Page cache lookup failed, reading all {} chunks: {}", keys.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void storePages(Map<String, String> pages) {
+        try {
+            pageCache.putAll(pages);
+        } catch (Exception e) {
+            log.warn("[OCR] Could not cache {} chunks: {}", pages.size(), e.getMessage());
+        }
+    }
+
     // ✅ Helper to check if the root cause is a timeout
     private boolean isTimeoutException(Throwable e) {
         while (e != null) {
@@ -90,4 +276,7 @@ public class OcrClient {
         }
         return false;
     }
+
+    private record Page(String filename, byte[] bytes) {
+    }
 }
@@ -0,0 +1,318 @@
+package com.autoevaluator.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional shrinking of page photos before they are sent to the OCR service: rotate upright per the JPEG's
+ * EXIF orientation, downscale to spring.ocr.preprocess.target-dpi (assuming an A4 page), convert to grayscale,
+ * crop the blank margins around the writing and re-encode as JPEG at spring.ocr.preprocess.jpeg-quality.
+ *
+ * Runs on the bounded ocrPreprocessExecutor pool since it is pure CPU work. Pages ImageIO cannot decode,
+ * and pages that would not get smaller, are sent unchanged.
+ */
+@Component
+public class OcrImagePreprocessor {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrImagePreprocessor.class);
+
+    // Long edge of an A4 page in inches
+    private static final double PAGE_LONG_EDGE_INCHES = 11.69;
+
+    private final Executor executor;
+    private final boolean enabled;
+    private final int maxLongEdge;
+    private final boolean grayscale;
+    private final boolean cropMargins;
+    private final float jpegQuality;
+    private final String signature;
+
+    private final Timer time;
+    private final DistributionSummary bytesSaved;
+    private final Counter processed;
+    private final Counter unchanged;
+    private final Counter undecodable;
+
+    public OcrImagePreprocessor(@Qualifier("ocrPreprocessExecutor") Executor executor,
+                                MeterRegistry meterRegistry,
+                                @Value("${spring.ocr.preprocess.enabled:false}") boolean enabled,
+                                @Value("${spring.ocr.preprocess.target-dpi:200}") int targetDpi,
+                                @Value("${spring.ocr.preprocess.grayscale:true}") boolean grayscale,
+                                @Value("${spring.ocr.preprocess.crop-margins:true}") boolean cropMargins,
+                                @Value("${spring.ocr.preprocess.jpeg-quality:0.8}") float jpegQuality) {
+        this.executor = executor;
+        this.enabled = enabled;
+        this.maxLongEdge = (int) Math.round(targetDpi * PAGE_LONG_EDGE_INCHES);
+        this.grayscale = grayscale;
+        this.cropMargins = cropMargins;
+        this.jpegQuality = jpegQuality;
+        this.signature = enabled
+                ? "dpi=" + targetDpi + ",gray=" + grayscale + ",crop=" + cropMargins + ",q=" + jpegQuality
+                : "";
+
+        this.time = Timer.builder("ocr.preprocess.time").register(meterRegistry);
+        this.bytesSaved = DistributionSummary.builder("ocr.preprocess.saved").baseUnit("bytes").register(meterRegistry);
+        this.processed = Counter.builder("ocr.preprocess.pages").tag("result", "processed").register(meterRegistry);
+        this.unchanged = Counter.builder("ocr.preprocess.pages").tag("result", "unchanged").register(meterRegistry);
+        this.undecodable = Counter.builder("ocr.preprocess.pages").tag("result", "undecodable").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The settings that change what is sent to OCR, "" when disabled; part of the OCR cache key.
+     */
+    public String signature() {
+        return signature;
+    }
+
+    /**
+     * Pre-processes the pages in parallel on the pool and returns them in the same order. A page that was
+     * not changed is returned as the same array.
+     */
+    public List<byte[]> processAll(List<byte[]> pages) {
+        if (!enabled || pages.isEmpty()) return pages;
+
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>(pages.size());
+        for (byte[] page : pages) {
+            futures.add(CompletableFuture.supplyAsync(() -> process(page), executor));
+        }
+        List<byte[]> results = new ArrayList<>(pages.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                log.warn("[OCR_PREPROCESS] Page {} could not be pre-processed, sending it unchanged: {}",
+                        i + 1, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                results.add(pages.get(i));
+            }
+        }
+        return results;
+    }
+
+    private byte[] process(byte[] original) {
+        long start = System.nanoTime();
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+            if (source == null) {
+                undecodable.increment();
+                return original;
+            }
+
+            BufferedImage page = scale(source, jpegOrientation(original));
+            if (cropMargins) page = cropToContent(page);
+            byte[] encoded = encodeJpeg(page);
+
+            if (encoded.length >= original.length) {
+                unchanged.increment();
+                bytesSaved.record(0);
+                return original;
+            }
+            processed.increment();
+            bytesSaved.record(original.length - encoded.length);
+            return encoded;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            time.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Upright, downscaled and (optionally) grayscale copy of the photo, drawn in one pass
+    private BufferedImage scale(BufferedImage source, int orientation) {
+        boolean quarterTurn = orientation == 6 || orientation == 8;
+        int width = quarterTurn ? source.getHeight() : source.getWidth();
+        int height = quarterTurn ? source.getWidth() : source.getHeight();
+        double scale = Math.min(1.0, (double) maxLongEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE); // transparent PNG areas become paper, not black
+            g.fillRect(0, 0, targetWidth, targetHeight);
+
+            AffineTransform transform = new AffineTransform();
+            switch (orientation) {
+                case 3 -> transform.rotate(Math.PI, targetWidth / 2.0, targetHeight / 2.0);
+                case 6 -> {
+                    transform.translate(targetWidth, 0);
+                    transform.rotate(Math.PI / 2);
+                }
+                case 8 -> {
+                    transform.translate(0, targetHeight);
+                    transform.rotate(-Math.PI / 2);
+                }
+                default -> { }
+            }
+            transform.scale(scale, scale);
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Crops to the rows and columns holding writing, i.e. pixels clearly darker than the page on average,
+     * keeping a small border. Returns the page unchanged if no writing is found.
+     */
+    private static BufferedImage cropToContent(BufferedImage page) {
+        int width = page.getWidth();
+        int height = page.getHeight();
+        int[] luminance = luminance(page);
+
+        long sum = 0;
+        for (int value : luminance) sum += value;
+        int threshold = (int) (sum / luminance.length * 0.7);
+
+        int[] darkPerRow = new int[height];
+        int[] darkPerColumn = new int[width];
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                if (luminance[i] < threshold) {
+                    darkPerRow[y]++;
+                    darkPerColumn[x]++;
+                }
+            }
+        }
+
+        // Ignore specks: a row or column counts once 0.5% of it is dark
+        int top = firstAbove(darkPerRow, Math.max(1, width / 200), false);
+        int bottom = firstAbove(darkPerRow, Math.max(1, width / 200), true);
+        int left = firstAbove(darkPerColumn, Math.max(1, height / 200), false);
+        int right = firstAbove(darkPerColumn, Math.max(1, height / 200), true);
+        if (top < 0 || left < 0) return page;
+
+        int padX = width / 50;
+        int padY = height / 50;
+        int x0 = Math.max(0, left - padX);
+        int y0 = Math.max(0, top - padY);
+        int x1 = Math.min(width, right + 1 + padX);
+        int y1 = Math.min(height, bottom + 1 + padY);
+        if (x0 == 0 && y0 == 0 && x1 == width && y1 == height) return page;
+        return page.getSubimage(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    private static int firstAbove(int[] counts, int minimum, boolean fromEnd) {
+        for (int k = 0; k < counts.length; k++) {
+            int i = fromEnd ? counts.length - 1 - k : k;
+            if (counts[i] >= minimum) return i;
+        }
+        return -1;
+    }
+
+    // 0-255 luminance per pixel, row by row; the page is always one of the two types created in scale()
+    private static int[] luminance(BufferedImage page) {
+        int[] luminance = new int[page.getWidth() * page.getHeight()];
+        if (page.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] pixels = ((DataBufferByte) page.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < luminance.length; i++) luminance[i] = pixels[i] & 0xFF;
+        } else {
+            int[] pixels = ((DataBufferInt) page.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < luminance.length; i++) {
+                int rgb = pixels[i];
+                luminance[i] = (299 * ((rgb >> 16) & 0xFF) + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF)) / 1000;
+            }
+        }
+        return luminance;
+    }
+
+    private byte[] encodeJpeg(BufferedImage page) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(page, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * EXIF orientation of a JPEG (1 = upright, 3 = upside down, 6 / 8 = turned a quarter), 1 if absent.
+     * Re-encoding drops the EXIF block, so the rotation is applied to the pixels instead.
+     */
+    static int jpegOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) return 1;
+        int pos = 2;
+        while (pos + 4 <= jpeg.length && (jpeg[pos] & 0xFF) == 0xFF) {
+            int marker = jpeg[pos + 1] & 0xFF;
+            int length = ((jpeg[pos + 2] & 0xFF) << 8) | (jpeg[pos + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) break; // image data starts, no EXIF before it
+            int segment = pos + 4;
+            if (marker == 0xE1 && segment + 14 <= jpeg.length
+                    && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x' && jpeg[segment + 2] == 'i' && jpeg[segment + 3] == 'f') {
+                return tiffOrientation(jpeg, segment + 6, Math.min(jpeg.length, pos + 2 + length));
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] data, int tiff, int end) {
+        boolean littleEndian = data[tiff] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > end) return 1;
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) break;
+            if (readShort(data, entry, littleEndian) == 0x0112) {
+                int orientation = readShort(data, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int pos, boolean littleEndian) {
+        int a = data[pos] & 0xFF, b = data[pos + 1] & 0xFF;
+        return littleEndian ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int pos, boolean littleEndian) {
+        return littleEndian
+                ? (readShort(data, pos + 2, true) << 16) | readShort(data, pos, true)
+                : (readShort(data, pos, false) << 16) | readShort(data, pos + 2, false);
+    }
+}
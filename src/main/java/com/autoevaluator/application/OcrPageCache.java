@@ -0,0 +1,157 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.entity.OcrPageCacheEntry;
+import com.autoevaluator.domain.repositories.OcrPageCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of OCR text per page image, or per chunk of pages sent as one OCR request, so a
+ * re-uploaded ZIP or a retried single upload only sends what the OCR service has not read yet. Entries live
+ * in the OcrPageCacheEntry table and are evicted least recently used first once their text exceeds
+ * spring.ocr.cache.max-size. The ocr.cache.pages counters count entries looked up, pages or chunks.
+ */
+@Component
+public class OcrPageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrPageCache.class);
+
+    private final OcrPageCacheRepository ocrPageCacheRepository;
+    private final boolean enabled;
+    private final String ocrVersion;
+    private final long maxBytes;
+    private final long evictIntervalNanos;
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public OcrPageCache(OcrPageCacheRepository ocrPageCacheRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${spring.ocr.cache.enabled:true}") boolean enabled,
+                        @Value("${spring.ocr.cache.max-size:256MB}") DataSize maxSize,
+                        @Value("${spring.ocr.cache.evict-interval:1m}") Duration evictInterval,
+                        @Value("${spring.ocr.version:v1}") String ocrVersion) {
+        this.ocrPageCacheRepository = ocrPageCacheRepository;
+        this.enabled = enabled;
+        this.ocrVersion = ocrVersion;
+        this.maxBytes = maxSize.toBytes();
+        this.evictIntervalNanos = evictInterval.toNanos();
+
+        this.hits = Counter.builder("ocr.cache.pages").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("ocr.cache.pages").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("ocr.cache.hit.ratio", this, OcrPageCache::hitRatio).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param variant anything else that changes what OCR sees for the same image, e.g. pre-processing settings
+     */
+    public String keyFor(byte[] image, String variant) {
+        MessageDigest digest = sha256();
+        digest.update(ocrVersion.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(variant.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(image);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Key of pages read in one OCR request, in order; the key of the page itself for a single page.
+     */
+    public String keyFor(List<String> pageKeys) {
+        if (pageKeys.size() == 1) return pageKeys.get(0);
+
+        MessageDigest digest = sha256();
+        digest.update("chunk".getBytes(StandardCharsets.UTF_8));
+        for (String pageKey : pageKeys) {
+            digest.update((byte) 0);
+            digest.update(pageKey.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up all pages of a sheet in one query and marks the ones found as just used. Runs in its own
+     * transaction so the upload calling it holds no cache rows while it waits on OCR.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> found = new HashMap<>();
+        if (!enabled || keys.isEmpty()) return found;
+
+        for (OcrPageCacheEntry entry : ocrPageCacheRepository.findAllById(keys)) {
+            found.put(entry.getCacheKey(), entry.getText());
+        }
+        if (!found.isEmpty()) {
+            ocrPageCacheRepository.touch(found.keySet(), LocalDateTime.now());
+        }
+
+        hits.increment(found.size());
+        misses.increment(keys.size() - found.size());
+        return found;
+    }
+
+    /**
+     * Stores freshly read pages, then evicts down to the size limit if the last eviction is older than
+     * spring.ocr.cache.evict-interval. Callers should treat a failure here as non-fatal.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void putAll(Map<String, String> pages) {
+        if (!enabled || pages.isEmpty()) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OcrPageCacheEntry> entries = pages.entrySet().stream()
+                .map(e -> OcrPageCacheEntry.builder()
+                        .cacheKey(e.getKey())
+                        .text(e.getValue())
+                        .sizeBytes(e.getValue().getBytes(StandardCharsets.UTF_8).length)
+                        .ocrVersion(ocrVersion)
+                        .createdAt(now)
+                        .lastUsedAt(now)
+                        .build())
+                .toList();
+        ocrPageCacheRepository.saveAll(entries);
+
+        long last = lastEviction.get();
+        if (System.nanoTime() - last >= evictIntervalNanos && lastEviction.compareAndSet(last, System.nanoTime())) {
+            int evicted = ocrPageCacheRepository.evictLeastRecentlyUsed(maxBytes);
+            if (evicted > 0) {
+                log.info("[OCR_CACHE] Evicted {} least recently used pages to stay under {} bytes", evicted, maxBytes);
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+}
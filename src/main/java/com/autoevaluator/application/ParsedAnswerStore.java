@@ -0,0 +1,100 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.entity.AnswerSheetType;
+import com.autoevaluator.domain.entity.Enrolment;
+import com.autoevaluator.domain.entity.ParsedAnswer;
+import com.autoevaluator.domain.repositories.EnrolmentRepository;
+import com.autoevaluator.domain.repositories.ParsedAnswerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed answers of each uploaded sheet, one {@link ParsedAnswer} row per question, keyed by enrolment,
+ * sheet type and assignment number.
+ *
+ * Sheets uploaded before the rows existed only have the "Ans1: ..." text on the enrolment or submission;
+ * the first read of such a sheet parses that text once and stores the rows.
+ */
+@Component
+public class ParsedAnswerStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ParsedAnswerStore.class);
+
+    private final ParsedAnswerRepository parsedAnswerRepository;
+    private final EnrolmentRepository enrolmentRepository;
+    private final AnswerSheetParser answerSheetParser;
+
+    public ParsedAnswerStore(ParsedAnswerRepository parsedAnswerRepository, EnrolmentRepository enrolmentRepository,
+                             AnswerSheetParser answerSheetParser) {
+        this.parsedAnswerRepository = parsedAnswerRepository;
+        this.enrolmentRepository = enrolmentRepository;
+        this.answerSheetParser = answerSheetParser;
+    }
+
+    /**
+     * Replaces the stored answers of the sheet with {@code answers}, in their iteration order.
+     */
+    @Transactional
+    public void replace(Long enrolmentId, AnswerSheetType type, String assignmentNumber, Map<String, String> answers) {
+        String number = keyOf(type, assignmentNumber);
+        parsedAnswerRepository.deleteSheet(enrolmentId, type, number);
+
+        Enrolment enrolment = enrolmentRepository.getReferenceById(enrolmentId);
+        List<ParsedAnswer> rows = new ArrayList<>(answers.size());
+        int position = 0;
+        for (Map.Entry<String, String> answer : answers.entrySet()) {
+            rows.add(ParsedAnswer.builder()
+                    .enrolment(enrolment)
+                    .sheetType(type)
+                    .assignmentNumber(number)
+                    .position(position++)
+                    .answerLabel(answer.getKey())
+                    .answerText(answer.getValue())
+                    .build());
+        }
+        parsedAnswerRepository.saveAll(rows);
+    }
+
+    /**
+     * Answers of the sheet in question order, label to text. {@code storedText} is the sheet's "Ans1: ..." text,
+     * only read when no rows exist yet.
+     */
+    @Transactional
+    public Map<String, String> load(Long enrolmentId, AnswerSheetType type, String assignmentNumber, String storedText) {
+        List<ParsedAnswer> rows = parsedAnswerRepository.findByEnrolment_IdAndSheetTypeAndAssignmentNumberOrderByPositionAsc(
+                enrolmentId, type, keyOf(type, assignmentNumber));
+        if (!rows.isEmpty()) {
+            Map<String, String> answers = new LinkedHashMap<>(rows.size() * 2);
+            for (ParsedAnswer row : rows) {
+                answers.put(row.getAnswerLabel(), row.getAnswerText());
+            }
+            return answers;
+        }
+
+        if (storedText == null || storedText.isBlank()) return Collections.emptyMap();
+        Map<String, String> answers = answerSheetParser.parseStored(storedText);
+        if (!answers.isEmpty()) {
+            replace(enrolmentId, type, assignmentNumber, answers);
+            log.info("[ANSWERS] Stored {} parsed answers of enrolment {} {} sheet uploaded before answer rows existed",
+                    answers.size(), enrolmentId, type);
+        }
+        return answers;
+    }
+
+    @Transactional
+    public void delete(Long enrolmentId, AnswerSheetType type, String assignmentNumber) {
+        parsedAnswerRepository.deleteSheet(enrolmentId, type, keyOf(type, assignmentNumber));
+    }
+
+    private static String keyOf(AnswerSheetType type, String assignmentNumber) {
+        return type == AnswerSheetType.ASSIGNMENT && assignmentNumber != null ? assignmentNumber.trim() : "";
+    }
+}
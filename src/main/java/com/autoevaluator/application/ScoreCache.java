@@ -0,0 +1,169 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersRequest;
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+import com.autoevaluator.domain.entity.ScoreCacheEntry;
+import com.autoevaluator.domain.repositories.ScoreCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Content-addressed cache of scoring results, so re-evaluating an unchanged answer never calls the NLI service again.
+ * Lookups go to a size-bounded in-memory LRU first, then to the score_cache_entry table which survives restarts.
+ */
+@Component
+public class ScoreCache {
+
+    private final ScoreCacheRepository scoreCacheRepository;
+    private final boolean enabled;
+    private final String scorerVersion;
+    private final Map<String, CompareAnswersResponse> memory;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public ScoreCache(ScoreCacheRepository scoreCacheRepository,
+                      MeterRegistry meterRegistry,
+                      @Value("${spring.scoring.cache.enabled:true}") boolean enabled,
+                      @Value("${spring.scoring.cache.max-entries:10000}") int maxEntries,
+                      @Value("${spring.scoring.version:v1}") String scorerVersion) {
+        this.scoreCacheRepository = scoreCacheRepository;
+        this.enabled = enabled;
+        this.scorerVersion = scorerVersion;
+
+        // Access-ordered LinkedHashMap evicting the least recently used entry once full
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<String, CompareAnswersResponse>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompareAnswersResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+
+        this.memoryHits = Counter.builder("scoring.cache.requests").tag("result", "hit").tag("tier", "memory").register(meterRegistry);
+        this.databaseHits = Counter.builder("scoring.cache.requests").tag("result", "hit").tag("tier", "database").register(meterRegistry);
+        this.misses = Counter.builder("scoring.cache.requests").tag("result", "miss").tag("tier", "none").register(meterRegistry);
+        Gauge.builder("scoring.cache.hit.ratio", this, ScoreCache::hitRatio).register(meterRegistry);
+        Gauge.builder("scoring.cache.memory.size", memory, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String keyFor(CompareAnswersRequest request) {
+        return keyFor(normalize(request.getTeacher_answer()), request.getStudent_answer(), request.getTotal_marks());
+    }
+
+    /**
+     * Same key as {@link #keyFor(CompareAnswersRequest)}, for callers holding an already normalized answer key.
+     */
+    public String keyFor(String normalizedTeacherAnswer, String studentAnswer, double totalMarks) {
+        String material = normalizedTeacherAnswer + '\u0000'
+                + normalize(studentAnswer) + '\u0000'
+                + totalMarks + '\u0000'
+                + scorerVersion;
+        return sha256(material);
+    }
+
+    /**
+     * Fingerprint stored with a persisted score for incremental re-evaluation: the cache key plus the scorer
+     * that produced the marks and whether they were provisional. A provisional fingerprint never equals the
+     * one a fresh evaluation expects, so provisional marks are always rescored.
+     */
+    public String fingerprintFor(String normalizedTeacherAnswer, String studentAnswer, double totalMarks,
+                                 String scorer, boolean provisional) {
+        return sha256(keyFor(normalizedTeacherAnswer, studentAnswer, totalMarks) + '\u0000'
+                + scorer + '\u0000'
+                + (provisional ? "provisional" : "final"));
+    }
+
+    /**
+     * Looks up all keys of a sheet at once: memory first, then a single query for the rest.
+     */
+    public Map<String, CompareAnswersResponse> getAll(Collection<String> keys) {
+        Map<String, CompareAnswersResponse> found = new HashMap<>();
+        if (!enabled || keys.isEmpty()) return found;
+
+        List<String> remaining = new ArrayList<>();
+        for (String key : keys) {
+            CompareAnswersResponse cached = memory.get(key);
+            if (cached != null) {
+                found.put(key, cached);
+                memoryHits.increment();
+            } else {
+                remaining.add(key);
+            }
+        }
+
+        if (!remaining.isEmpty()) {
+            for (ScoreCacheEntry entry : scoreCacheRepository.findAllById(remaining)) {
+                CompareAnswersResponse response = new CompareAnswersResponse(
+                        entry.getScore(), entry.getEntailment(), entry.getNeutral(), entry.getContradiction());
+                memory.put(entry.getCacheKey(), response);
+                found.put(entry.getCacheKey(), response);
+                databaseHits.increment();
+            }
+        }
+
+        misses.increment(keys.size() - found.size());
+        return found;
+    }
+
+    /**
+     * Stores fresh results in both tiers. Runs in its own transaction so cached scores
+     * survive even if the surrounding evaluation is rolled back and retried; callers
+     * should treat a failure here as non-fatal.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void putAll(Map<String, CompareAnswersResponse> results) {
+        if (!enabled || results.isEmpty()) return;
+
+        memory.putAll(results);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ScoreCacheEntry> entries = results.entrySet().stream()
+                .map(e -> ScoreCacheEntry.builder()
+                        .cacheKey(e.getKey())
+                        .score(e.getValue().getScore())
+                        .entailment(e.getValue().getEntailment())
+                        .neutral(e.getValue().getNeutral())
+                        .contradiction(e.getValue().getContradiction())
+                        .scorerVersion(scorerVersion)
+                        .createdAt(now)
+                        .build())
+                .toList();
+        scoreCacheRepository.saveAll(entries);
+    }
+
+    private double hitRatio() {
+        double hits = memoryHits.count() + databaseHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private String sha256(String material) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersRequest;
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+import com.autoevaluator.util.AdaptiveConcurrencyLimiter;
+import com.autoevaluator.util.AdaptiveConcurrencyLimiter.Outcome;
+import com.autoevaluator.util.CircuitBreaker;
+import com.autoevaluator.util.RequestHedger;
+import com.autoevaluator.util.WorkPriority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * HTTP client for the NLI scoring service, backed by the shared pooled scoringWebClient.
+ * All calls go through an adaptive concurrency limiter and circuit breaker (spring.scoring.limiter.*,
+ * spring.scoring.breaker.*), so bulk runs slow down with the service instead of piling up timeouts.
+ */
+@Component
+public class ScoringClient {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoringClient.class);
+
+    private final WebClient webClient;
+
+    @Value("${spring.scoring.api-url}")
+    private String scoringApiUrl;
+    @Value("${spring.scoring.batch-api-url}")
+    private String scoringBatchApiUrl;
+
+    private volatile boolean batchEndpointAvailable = true;
+
+    // Load on the NLI service follows its observed latency; while the breaker is open requests queue up
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final RequestHedger hedger;
+
+    public ScoringClient(@Qualifier("scoringWebClient") WebClient webClient,
+                         MeterRegistry meterRegistry,
+                         @Value("${spring.scoring.limiter.initial-limit:8}") int initialLimit,
+                         @Value("${spring.scoring.limiter.min-limit:1}") int minLimit,
+                         @Value("${spring.scoring.limiter.max-limit:64}") int maxLimit,
+                         @Value("${spring.scoring.limiter.backoff-ratio:0.7}") double backoffRatio,
+                         @Value("${spring.scoring.limiter.latency-threshold:5s}") Duration latencyThreshold,
+                         @Value("${spring.scoring.limiter.max-queue-wait:10m}") Duration maxQueueWait,
+                         @Value("${spring.scoring.breaker.failure-threshold:5}") int failureThreshold,
+                         @Value("${spring.scoring.breaker.open-duration:30s}") Duration openDuration,
+                         @Value("${spring.scoring.hedge.enabled:false}") boolean hedgeEnabled,
+                         @Value("${spring.scoring.hedge.percentile:0.95}") double hedgePercentile,
+                         @Value("${spring.scoring.hedge.budget-percent:5}") double hedgeBudgetPercent,
+                         @Value("${spring.scoring.hedge.min-delay:500ms}") Duration hedgeMinDelay) {
+        this.webClient = webClient;
+        this.limiter = new AdaptiveConcurrencyLimiter("Scoring", initialLimit, minLimit, maxLimit, backoffRatio,
+                latencyThreshold, maxQueueWait, new CircuitBreaker(failureThreshold, openDuration.toMillis()));
+
+        this.hedger = new RequestHedger("scoring", meterRegistry, hedgeEnabled, hedgePercentile,
+                hedgeBudgetPercent, hedgeMinDelay);
+
+        Gauge.builder("scoring.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("scoring.limiter.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("scoring.limiter.queued", limiter, AdaptiveConcurrencyLimiter::getQueued).register(meterRegistry);
+        for (WorkPriority priority : WorkPriority.values()) {
+            Gauge.builder("scoring.limiter.queued.priority", limiter, l -> l.getQueued(priority))
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("scoring.breaker.open", limiter,
+                l -> l.getCircuitBreaker().getState() == CircuitBreaker.State.CLOSED ? 0 : 1).register(meterRegistry);
+    }
+
+    /**
+     * Scores one answer. Errors are mapped to the RuntimeException messages callers have always seen.
+     * Slow calls may be hedged (spring.scoring.hedge.*), but never while requests are queued in the limiter.
+     */
+    public Mono<CompareAnswersResponse> score(CompareAnswersRequest requestBody) {
+        return score(requestBody, WorkPriority.INTERACTIVE);
+    }
+
+    /**
+     * Scores one answer, queueing in the limiter with the given priority. The priority is passed in rather than
+     * read from {@link WorkPriority#current()} because the Mono may be subscribed on a Netty thread.
+     */
+    public Mono<CompareAnswersResponse> score(CompareAnswersRequest requestBody, WorkPriority priority) {
+        // Only the request itself is measured for the hedge delay, not the wait for a limiter permit
+        return hedger.hedge(() -> limited(hedger.measure(webClient.post()
+                                .uri(scoringApiUrl)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(BodyInserters.fromValue(requestBody))
+                                .retrieve()
+                                .bodyToMono(CompareAnswersResponse.class)
+                                .timeout(Duration.ofSeconds(20))), priority),
+                        () -> limiter.getQueued() == 0)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Scoring API returned no response")))
+                .onErrorMap(e -> isTimeoutException(e)
+                        ? new RuntimeException("Scoring API timed out after 20 seconds", e)
+                        : new RuntimeException("Failed to call Scoring API: " + e.getMessage(), e));
+    }
+
+    /**
+     * False while the circuit breaker is open, i.e. new calls would only wait in the limiter queue.
+     */
+    public boolean isAvailable() {
+        return limiter.getCircuitBreaker().getState() != CircuitBreaker.State.OPEN;
+    }
+
+    public boolean isBatchEndpointAvailable() {
+        return batchEndpointAvailable;
+    }
+
+    /**
+     * Sends all answers of a sheet in one request to the batch scoring endpoint.
+     * Returns null when the caller should fall back to per-question scoring, i.e. only when the service has
+     * no batch endpoint or answered with the wrong number of results. Timeouts, connection errors, 5xx and 429
+     * are thrown like any other scoring failure: retrying a struggling service once per question would
+     * multiply its load.
+     */
+    public List<CompareAnswersResponse> scoreBatch(List<CompareAnswersRequest> batch) {
+        return scoreBatch(batch, WorkPriority.INTERACTIVE);
+    }
+
+    public List<CompareAnswersResponse> scoreBatch(List<CompareAnswersRequest> batch, WorkPriority priority) {
+        try {
+            List<CompareAnswersResponse> responses = limited(webClient.post()
+                            .uri(scoringBatchApiUrl)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(BodyInserters.fromValue(batch))
+                            .retrieve()
+                            .bodyToFlux(CompareAnswersResponse.class)
+                            .collectList()
+                            .timeout(Duration.ofSeconds(20)), priority)
+                    .block();
+
+            if (responses == null || responses.size() != batch.size()) {
+                log.warn("[SCORING] Batch endpoint returned {} results for {} answers, falling back to per-question calls",
+                        responses == null ? 0 : responses.size(), batch.size());
+                return null;
+            }
+            return responses;
+
+        } catch (WebClientResponseException e) {
+            HttpStatusCode status = e.getStatusCode();
+            if (status.value() == 404 || status.value() == 405 || status.value() == 501) {
+                // The scoring service has no batch endpoint, stop trying it until restart
+                batchEndpointAvailable = false;
+                log.warn("[SCORING] Batch endpoint {} not available ({}), using per-question calls", scoringBatchApiUrl, status);
+                return null;
+            }
+            throw new RuntimeException("Failed to call Scoring API: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            if (isTimeoutException(e)) {
+                throw new RuntimeException("Scoring API timed out after 20 seconds", e);
+            }
+            throw new RuntimeException("Failed to call Scoring API: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs the call once the limiter hands out a permit and reports its outcome back.
+     */
+    private <T> Mono<T> limited(Mono<T> call, WorkPriority priority) {
+        return limiter.acquire(priority).flatMap(permit -> call
+                .doOnSuccess(result -> permit.release(Outcome.SUCCESS))
+                .doOnError(e -> permit.release(isOverload(e) ? Outcome.DROPPED : Outcome.IGNORED))
+                .doOnCancel(() -> permit.release(Outcome.IGNORED)));
+    }
+
+    // Timeouts, connection failures, 5xx and 429 mean the service is struggling; other 4xx do not
+    private boolean isOverload(Throwable e) {
+        if (isTimeoutException(e) || e instanceof WebClientRequestException) return true;
+        if (e instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return false;
+    }
+
+    private boolean isTimeoutException(Throwable e) {
+        while (e != null) {
+            if (e instanceof java.util.concurrent.TimeoutException ||
+                    e instanceof java.net.SocketTimeoutException) return true;
+            e = e.getCause();
+        }
+        return false;
+    }
+}
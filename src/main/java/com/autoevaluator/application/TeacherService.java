@@ -18,12 +18,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -34,6 +36,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 @Service
@@ -42,6 +45,8 @@ public class TeacherService {
     private String fileUploadDir;
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
     private final CourseRepository courseRepository;
     private final AppUserRepository appUserRepository;
     private final QuestionPaperRepository questionPaperRepository;
@@ -53,6 +58,9 @@ public class TeacherService {
     private final DepartmentRepository departmentRepository;
 
     private final OcrClient ocrClient;
+    private final AnswerKeyModelCache answerKeyModelCache;
+    private final AnswerSheetParser answerSheetParser;
+    private final ParsedAnswerStore parsedAnswerStore;
     private static final Logger log = LoggerFactory.getLogger(TeacherService.class);
 
     @Autowired
@@ -65,7 +73,10 @@ public class TeacherService {
                           TeacherRepository teacherRepository,
                           CollegeRepository collegeRepository,
                           DepartmentRepository departmentRepository,
-                          OcrClient ocrClient) {
+                          OcrClient ocrClient,
+                          AnswerKeyModelCache answerKeyModelCache,
+                          AnswerSheetParser answerSheetParser,
+                          ParsedAnswerStore parsedAnswerStore) {
         this.courseRepository = courseRepository;
         this.appUserRepository = appUserRepository;
         this.questionPaperRepository = questionPaperRepository;
@@ -76,6 +87,9 @@ public class TeacherService {
         this.collegeRepository = collegeRepository;
         this.departmentRepository = departmentRepository;
         this.ocrClient = ocrClient;
+        this.answerKeyModelCache = answerKeyModelCache;
+        this.answerSheetParser = answerSheetParser;
+        this.parsedAnswerStore = parsedAnswerStore;
     }
     public List<TeacherDTO> getAllTeachersExceptCurrent() {
         AppUser teacherCurrent = getCurrentUser();
@@ -274,6 +288,7 @@ public class TeacherService {
         }
 
         questionPaper.getQuestions().add(question);
+        answerKeysChanged(questionPaper);
         questionPaperRepository.save(questionPaper);
     }
 
@@ -325,6 +340,7 @@ public class TeacherService {
             answerKey.setCorrectAnswer(questionRequest.getCorrectAnswer());
         }
 
+        answerKeysChanged(paper);
         questionRepository.save(question);
     }
 
@@ -350,6 +366,7 @@ public class TeacherService {
 
         // Remove the question from the paper's questions list
         questionPaper.getQuestions().remove(question);
+        answerKeysChanged(questionPaper);
 
         // Save the updated Question Paper after removing the question
         questionPaperRepository.save(questionPaper);
@@ -368,6 +385,13 @@ public class TeacherService {
 
         // Delete the question paper from the repository
         questionPaperRepository.delete(questionPaper);
+        answerKeyModelCache.invalidate(paperId);
+    }
+
+    // New version for the compiled answer-key cache; evaluations pick up the change on their next run
+    private void answerKeysChanged(QuestionPaper paper) {
+        paper.setAnswerKeyVersion(paper.getAnswerKeyVersion() == null ? 1 : paper.getAnswerKeyVersion() + 1);
+        answerKeyModelCache.invalidate(paper.getId());
     }
 
 
@@ -582,7 +606,6 @@ public class TeacherService {
             value = { Exception.class },
             maxAttempts = 3,
             backoff = @Backoff(delay = 2000))
-    @Transactional
     public void uploadMidtermSheetAsync(String studentUsername, String courseName, List<MultipartFile> files, String teacherUsername) {
         Student student = studentRepository.findByUsername(studentUsername)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -613,7 +636,6 @@ public class TeacherService {
 
 
     @Async("externalTaskExecutor")
-    @Transactional
     public void uploadEndtermSheetAsync(String studentUsername, String courseName, List<MultipartFile> files, String teacherUsername) {
         Student student = studentRepository.findByUsername(studentUsername)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -640,7 +662,6 @@ public class TeacherService {
         }
     }
     @Async("externalTaskExecutor")
-    @Transactional
     public void uploadAssignmentSheetAsync(
             String studentUsername,
             String courseName,
@@ -683,53 +704,28 @@ public class TeacherService {
     }
 
 
-    @Transactional
+    /**
+     * Single-sheet upload. Like bulk items, OCR runs before any transaction is opened and only the save
+     * holds a DB connection.
+     */
     public String uploadAnswerSheet(String studentUsername, String courseName, List<MultipartFile> files, AnswerSheetType type, String assignmentNumber) {
         try {
             Student student = studentRepository.findByUsername(studentUsername)
                     .orElseThrow(() -> new RuntimeException("Student not found"));
 
-            Enrolment enrolment = student.getEnrolments().stream()
-                    .filter(e -> e.getCourse().getCourseName().equals(courseName))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Enrolment for course not found"));
+            // Checked before OCR so a sheet for the wrong course never reaches the OCR service
+            Long enrolmentId = enrolmentRepository.findByStudentIdAndCourseCourseName(student.getId(), courseName)
+                    .orElseThrow(() -> new RuntimeException("Enrolment for course not found"))
+                    .getId();
 
             // 🔥 OCR call: Process each image and concatenate text
+            String fullText = extractAnswerSheetText(student.getRollNo(), files);
 
-
-            String fullText = ocrClient.extractText(files);
-
-
-            // ✅ Parse structured answers
-            Map<String, String> answerMap = parseAnswerSheetText(fullText);
-            String structuredText = answerMap.entrySet().stream()
-                    .map(e -> e.getKey() + ": " + e.getValue())
-                    .collect(Collectors.joining("\n\n"));
-
-            // 🔗 Dummy sheet URL for now (replace with actual storage logic if needed)
-            String sheetUrl = "https://example.com/sheet-uploaded-location";
-
-            // 💾 Save structured text + sheet URL
-            switch (type) {
-                case MIDTERM -> {
-                    enrolment.setMidtermAnswerSheetUrl(sheetUrl);
-                    enrolment.setMidtermAnswerSheetText(structuredText);
-                }
-                case ENDTERM -> {
-                    enrolment.setEndtermAnswerSheetUrl(sheetUrl);
-                    enrolment.setEndtermAnswerSheetText(structuredText);
-                }
-                case ASSIGNMENT -> {
-                    AssignmentSubmission submission = new AssignmentSubmission();
-                    submission.setAssignmentSheetText(structuredText);
-                    submission.setAnswerSheetUrl(sheetUrl);
-                    submission.setAssignmentNumber(assignmentNumber);
-                    submission.setEnrolment(enrolment);
-                    enrolment.getAssignments().add(submission);
-                }
-            }
-
-            enrolmentRepository.save(enrolment);
+            // ✅ Parse structured answers, then save them in a short transaction of their own
+            Map<String, String> answerMap = answerSheetParser.parse(fullText);
+            // Saved by enrolment id: roll numbers are only unique within a college, department and semester
+            transactionTemplate.executeWithoutResult(status ->
+                    saveUploadedAnswerSheet(enrolmentId, answerMap, type, assignmentNumber));
             return "Structured answer sheet uploaded and saved successfully.";
 
         } catch (Exception e) {
@@ -823,6 +819,7 @@ public class TeacherService {
         enrolment.setMidtermMarks(0.0);
 
         enrolmentRepository.save(enrolment);
+        parsedAnswerStore.delete(enrolment.getId(), AnswerSheetType.MIDTERM, null);
     }
 
     @Transactional
@@ -845,6 +842,7 @@ public class TeacherService {
         enrolment.setEndtermMarks(0.0);
 
         enrolmentRepository.save(enrolment);
+        parsedAnswerStore.delete(enrolment.getId(), AnswerSheetType.ENDTERM, null);
     }
 
     @Transactional
@@ -868,6 +866,7 @@ public class TeacherService {
 
         enrolment.getAssignments().remove(assignmentSubmission); // Will cascade delete
         enrolmentRepository.save(enrolment);
+        parsedAnswerStore.delete(enrolment.getId(), AnswerSheetType.ASSIGNMENT, assignmentNumber);
     }
 
 
@@ -1002,162 +1001,144 @@ public class TeacherService {
     }
 
 
-    private Map<String, String> parseAnswerSheetText(String text) {
-        if (text == null || text.trim().isEmpty()) return Collections.emptyMap();
-
-        // We'll store in insertion order (LinkedHashMap) to keep question order intact
-        Map<String, String> result = new LinkedHashMap<>();
-
-        Pattern answerStartPattern = Pattern.compile("(?i)[^a-zA-Z0-9]*?(ans|ams|axs|ars)[\\s:!.-]*(\\d+)\\s*(.*)?");
-
-
-        String currentKey = null;
-        StringBuilder currentAnswer = new StringBuilder();
-
-        String[] lines = text.split("\\r?\\n");
-
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
-
-            Matcher matcher = answerStartPattern.matcher(line);
-            if (matcher.matches()) {
-                // Save previous answer
-                if (currentKey != null && currentAnswer.length() > 0) {
-                    result.put(currentKey, currentAnswer.toString().trim());
-                    currentAnswer.setLength(0);
-                }
+    /**
+     * Student folders of a bulk upload ZIP (e.g. "21BCS123/1.jpg" belongs to folder "21BCS123"), in ZIP order.
+     */
+    public List<String> listZipFolders(Path zipPath) throws IOException {
+        List<String> folders = new ArrayList<>(countZipFolderEntries(zipPath).keySet());
+        log.info("[BULK_UPLOAD] Found {} student folders in {}", folders.size(), zipPath.getFileName());
+        return folders;
+    }
 
-                // Start new answer
-                String number = matcher.group(2);
-                currentKey = "Ans" + number;
+    /**
+     * Number of files in each student folder of a bulk upload ZIP, in ZIP order, from its central directory.
+     */
+    public Map<String, Integer> countZipFolderEntries(Path zipPath) throws IOException {
+        Map<String, Integer> folders = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) continue;
+
+                String[] parts = entry.getName().split("/");
+                if (parts.length < 2) continue;
+                folders.merge(parts[0], 1, Integer::sum);
+            }
+        }
+        return folders;
+    }
 
-                String inlineAnswer = matcher.group(3);
-                if (inlineAnswer != null && !inlineAnswer.isBlank()) {
-                    currentAnswer.append(inlineAnswer.trim()).append(" ");
+    /**
+     * Reads a bulk upload ZIP front to back in one pass and hands each student folder to {@code handler} as soon
+     * as all of its files (per {@code expected}, see {@link #countZipFolderEntries}) have been read, so only the
+     * folders still being read are held in memory. ZIPs normally store a folder's files together, so that is
+     * usually one folder. If incomplete folders would hold more than {@code maxBufferedBytes}, the biggest is
+     * dropped and left for {@link #readZipFolder}. Returns the folders handed over; stops when the handler
+     * returns false.
+     */
+    public Set<String> streamZipFolders(Path zipPath, Map<String, Integer> expected, long maxBufferedBytes,
+                                       ZipFolderHandler handler) throws IOException, InterruptedException {
+        Set<String> handled = new HashSet<>();
+        Set<String> dropped = new HashSet<>();
+        Map<String, List<MultipartFile>> reading = new HashMap<>();
+        Map<String, Long> readingBytes = new HashMap<>();
+        long buffered = 0;
+
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(Files.newInputStream(zipPath)))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (entry.isDirectory()) continue;
+
+                String[] parts = entry.getName().split("/");
+                if (parts.length < 2 || dropped.contains(parts[0]) || handled.contains(parts[0])) continue;
+                String folder = parts[0];
+
+                byte[] bytes = in.readAllBytes();
+                List<MultipartFile> files = reading.computeIfAbsent(folder, f -> new ArrayList<>());
+                files.add(new InMemoryMultipartFile(bytes, parts[1], "image/jpeg"));
+                readingBytes.merge(folder, (long) bytes.length, Long::sum);
+                buffered += bytes.length;
+
+                if (files.size() >= expected.getOrDefault(folder, Integer.MAX_VALUE)) {
+                    reading.remove(folder);
+                    buffered -= readingBytes.remove(folder);
+                    handled.add(folder);
+                    if (!handler.accept(folder, files)) return handled;
+                    continue;
                 }
 
-            } else {
-                if (currentKey != null) {
-                    currentAnswer.append(line).append(" ");
+                while (buffered > maxBufferedBytes && !reading.isEmpty()) {
+                    String biggest = Collections.max(readingBytes.entrySet(), Map.Entry.comparingByValue()).getKey();
+                    reading.remove(biggest);
+                    buffered -= readingBytes.remove(biggest);
+                    dropped.add(biggest);
+                    log.info("[BULK_UPLOAD] Folder {} is spread across {}, it will be read on its own",
+                            biggest, zipPath.getFileName());
                 }
             }
         }
-
-        // Save the final answer
-        if (currentKey != null && currentAnswer.length() > 0) {
-            result.put(currentKey, currentAnswer.toString().trim());
-        }
-
-        // Sort by numeric suffix of the key (e.g., "Ans1", "Ans2", ...)
-        return result.entrySet().stream()
-                .sorted(Comparator.comparingInt(e -> Integer.parseInt(e.getKey().substring(3))))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (oldVal, newVal) -> oldVal,
-                        LinkedHashMap::new
-                ));
+        return handled;
     }
 
-    @Async("externalTaskExecutor")
-    @Transactional
-    @Retryable(
-            value = { Exception.class },
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 2000))
-    public void processBulkZipUploadAsync(byte[] zipBytes, String courseName, AnswerSheetType type,
-                                          String assignmentNumber, String teacherUsername) throws IOException {
-        try {
-            log.info("[BULK_UPLOAD] Max heap: {} MB", Runtime.getRuntime().maxMemory() / (1024 * 1024));
-            log.info("[BULK_UPLOAD] ZIP file size: {} bytes", zipBytes.length);
-
-            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
-                log.info("[BULK_UPLOAD] Extracting folders from ZIP");
-                Map<String, List<MultipartFile>> folderToFiles = extractFolders(zis);
-                log.info("[BULK_UPLOAD] Extracted {} student folders", folderToFiles.size());
-
-                int totalStudents = folderToFiles.size();
-                int completed = 0;
-
-                for (Map.Entry<String, List<MultipartFile>> entry : folderToFiles.entrySet()) {
-                    String rollNo = entry.getKey();
-                    List<MultipartFile> files = entry.getValue();
+    @FunctionalInterface
+    public interface ZipFolderHandler {
+        /**
+         * Takes the files of one complete student folder; returning false stops the stream.
+         */
+        boolean accept(String folder, List<MultipartFile> files) throws InterruptedException;
+    }
 
-                    try {
-                        log.info("[BULK_UPLOAD] Uploading for rollNo: {}", rollNo);
-                        upload(rollNo, courseName, files, type, assignmentNumber);
-                        notifyProgress(teacherUsername, rollNo, courseName, ++completed, totalStudents, "✅ Upload success");
-                    } catch (Exception e) {
-                        log.error("[BULK_UPLOAD] Error while uploading for rollNo {}: {}", rollNo, e.getMessage(), e);
-                        notifyProgress(teacherUsername, rollNo, courseName, ++completed, totalStudents, "❌ Failed: " + e.getMessage());
-                    }
+    /**
+     * Reads the images of one student folder of a bulk upload ZIP.
+     */
+    public List<MultipartFile> readZipFolder(Path zipPath, String folderName) throws IOException {
+        List<MultipartFile> files = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) continue;
+
+                String[] parts = entry.getName().split("/");
+                if (parts.length < 2 || !parts[0].equals(folderName)) continue;
+
+                try (InputStream in = zip.getInputStream(entry)) {
+                    files.add(new InMemoryMultipartFile(in.readAllBytes(), parts[1], "image/jpeg"));
                 }
-
-                messagingTemplate.convertAndSend("/topic/teacher/" + teacherUsername, Map.of(
-                        "type", "BULK_UPLOAD_COMPLETE",
-                        "courseName", courseName,
-                        "sheetType", type.toString()
-                ));
-
-                log.info("[BULK_UPLOAD] Bulk upload complete for teacher: {}", teacherUsername);
             }
-
-        } catch (IOException e) {
-            log.error("[BULK_UPLOAD] ❌ Fatal error while reading ZIP: {}", e.getMessage(), e);
-            messagingTemplate.convertAndSend("/topic/teacher/" + teacherUsername, Map.of(
-                    "type", "BULK_UPLOAD_FATAL",
-                    "message", "❌ Fatal error: " + e.getMessage()
-            ));
-            throw e;
-
         }
+        return files;
     }
 
 
-
-    private void notifyProgress(String teacherUsername, String rollNo, String courseName, int completed, int total, String statusMessage) {
-                messagingTemplate.convertAndSend("/topic/teacher/" + teacherUsername, Map.of(
-                        "type", "BULK_UPLOAD_PROGRESS",
-                        "rollNo", rollNo,
-                        "courseName", courseName,
-                        "status", statusMessage,
-                        "progress", (completed * 100) / total
-                ));
-            }
-
-
-            private Map<String, List<MultipartFile>> extractFolders(ZipInputStream zis) throws IOException {
-        Map<String, List<MultipartFile>> folderMap = new HashMap<>();
-        ZipEntry entry;
-        int count = 0;
-
-        while ((entry = zis.getNextEntry()) != null) {
-            if (entry.isDirectory()) continue;
-
-            String entryName = entry.getName(); // e.g., "21BCS123/1.jpg"
-            String[] parts = entryName.split("/");
-            if (parts.length < 2) continue;
-
-            String folderName = parts[0];
-            String fileName = parts[1];
-
-            byte[] fileData = zis.readAllBytes();
-            MultipartFile file = new InMemoryMultipartFile(fileData, fileName, "image/jpeg");
-
-            folderMap.computeIfAbsent(folderName, k -> new ArrayList<>()).add(file);
-            count++;
-        }
-
-        log.info("[BULK_UPLOAD] Total {} files extracted from ZIP", count);
-        return folderMap;
+    /**
+     * OCR step of an upload, run outside any transaction so no DB connection waits on the OCR service.
+     */
+    public String extractAnswerSheetText(String rollNo, List<MultipartFile> files) {
+        log.info("[UPLOAD] Performing OCR for rollNo: {}", rollNo);
+        String text = ocrClient.extractText(files);
+        log.info("[UPLOAD] OCR completed for rollNo: {}, characters: {}", rollNo, text.length());
+        return text;
     }
 
+    /**
+     * Saves the OCR text of an upload (see {@link #extractAnswerSheetText}) to the student's enrolment.
+     */
+    @Transactional
+    public void saveUploadedAnswerSheet(String rollNo, String courseName, String text,
+                                        AnswerSheetType type, String assignmentNumber) {
+        saveUploadedAnswerSheet(rollNo, courseName, answerSheetParser.parse(text), type, assignmentNumber);
+    }
 
+    /**
+     * Same as above for answers already parsed from the OCR text. Returns the student's username.
+     * Bulk ZIP folders are named by roll number, so this is the only path that finds students by it.
+     */
     @Transactional
-    public void upload(String rollNo, String courseName, List<MultipartFile> files,
-                       AnswerSheetType type, String assignmentNumber) throws IOException {
-        log.info("[UPLOAD] Start upload for rollNo: {}, course: {}, type: {}", rollNo, courseName, type);
+    public String saveUploadedAnswerSheet(String rollNo, String courseName, Map<String, String> structuredAnswers,
+                                          AnswerSheetType type, String assignmentNumber) {
+        log.info("[UPLOAD] Saving upload for rollNo: {}, course: {}, type: {}", rollNo, courseName, type);
         Student student = studentRepository.findByRollNo(rollNo)
                 .orElseThrow(() -> new RuntimeException("Student not found: " + rollNo));
 
@@ -1166,16 +1147,26 @@ public class TeacherService {
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Enrolment not found for course: " + courseName));
 
-        log.info("[UPLOAD] Performing OCR for rollNo: {}", rollNo);
-        String text = ocrClient.extractText(files);
-
+        saveAnswerSheet(enrolment, structuredAnswers, type, assignmentNumber);
+        log.info("[UPLOAD] Enrolment updated and saved for rollNo: {}", rollNo);
+        return student.getUsername();
+    }
 
-        log.info("[UPLOAD] OCR completed for rollNo: {}, characters: {}", rollNo, text.length());
+    /**
+     * Saves answers to an enrolment already resolved from a unique key, as single-sheet uploads do.
+     */
+    @Transactional
+    public void saveUploadedAnswerSheet(Long enrolmentId, Map<String, String> structuredAnswers,
+                                        AnswerSheetType type, String assignmentNumber) {
+        Enrolment enrolment = enrolmentRepository.findById(enrolmentId)
+                .orElseThrow(() -> new RuntimeException("Enrolment not found: " + enrolmentId));
+        saveAnswerSheet(enrolment, structuredAnswers, type, assignmentNumber);
+        log.info("[UPLOAD] Enrolment {} updated and saved", enrolmentId);
+    }
 
-        Map<String, String> structuredAnswers = parseAnswerSheetText(text);
-        String structuredText = structuredAnswers.entrySet().stream()
-                .map(e -> e.getKey() + ": " + e.getValue())
-                .collect(Collectors.joining("\n\n"));
+    private void saveAnswerSheet(Enrolment enrolment, Map<String, String> structuredAnswers,
+                                 AnswerSheetType type, String assignmentNumber) {
+        String structuredText = answerSheetParser.format(structuredAnswers);
 
         String dummyUrl = "https://dummy-storage-url.com/sheet";
 
@@ -1199,7 +1190,7 @@ public class TeacherService {
         }
 
         enrolmentRepository.save(enrolment);
-        log.info("[UPLOAD] Enrolment updated and saved for rollNo: {}", rollNo);
+        parsedAnswerStore.replace(enrolment.getId(), type, assignmentNumber, structuredAnswers);
     }
 
 
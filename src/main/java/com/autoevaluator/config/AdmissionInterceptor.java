@@ -0,0 +1,69 @@
+package com.autoevaluator.config;
+
+import com.autoevaluator.adapter.handler.rest.ErrorResponse;
+import com.autoevaluator.application.AdmissionControl;
+import com.autoevaluator.application.AdmissionControl.Decision;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Set;
+
+/**
+ * Applies {@link AdmissionControl} to the upload and evaluate endpoints. Runs before the handler's arguments
+ * are resolved and, with spring.servlet.multipart.resolve-lazily, before an upload's files are parsed,
+ * so a refused request costs neither the multipart read nor a queue slot.
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    static final Set<String> INTERACTIVE_PATHS = Set.of(
+            "/api/teacher/uploadMidtermAnswerSheet",
+            "/api/teacher/uploadEndtermAnswerSheet",
+            "/api/teacher/uploadAssignmentAnswerSheet",
+            "/api/evaluate/evaluateMidterm",
+            "/api/evaluate/evaluateEndterm",
+            "/api/evaluate/evaluateAssignment");
+
+    static final Set<String> BULK_PATHS = Set.of(
+            "/api/teacher/uploadBulkAnswerSheets",
+            "/api/evaluate/bulkEvaluateAnswerSheets");
+
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionInterceptor(AdmissionControl admissionControl, ObjectMapper objectMapper) {
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String path = request.getServletPath();
+        String endpoint = path.substring(path.lastIndexOf('/') + 1);
+
+        Decision decision;
+        if (INTERACTIVE_PATHS.contains(path)) {
+            decision = admissionControl.admitInteractive(endpoint);
+        } else if (BULK_PATHS.contains(path)) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            decision = admissionControl.admitBulk(endpoint, authentication != null ? authentication.getName() : "");
+        } else {
+            return true;
+        }
+        if (decision.admitted()) return true;
+
+        response.setStatus(decision.status());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getWriter(), new ErrorResponse(decision.status(), decision.message()));
+        return false;
+    }
+}
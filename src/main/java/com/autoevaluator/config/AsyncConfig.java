@@ -1,33 +1,115 @@
 package com.autoevaluator.config;
 
 
+import com.autoevaluator.util.PriorityTaskExecutor;
+import com.autoevaluator.util.WorkPriority;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    /**
+     * One pool for single-sheet work and bulk job items. Its queue is ordered by priority, so a teacher's
+     * single-sheet upload or evaluation starts as soon as a thread frees up, ahead of queued bulk students.
+     * Bulk students are queued per college and teacher (see BulkJobService) and share the pool fairly.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PriorityTaskExecutor sharedTaskExecutor(
+            @Value("${spring.tasks.mode:platform}") String mode,
+            @Value("${spring.tasks.pool-size:6}") int poolSize,
+            @Value("${spring.tasks.virtual.max-in-flight:256}") int maxInFlight,
+            @Value("${spring.tasks.interactive-queue-capacity:50}") int interactiveQueueCapacity,
+            @Value("${spring.tasks.fair-share.weights:}") String weights,
+            @Value("${spring.tasks.fair-share.max-running-per-college:0}") int maxRunningPerCollege,
+            @Value("${spring.tasks.fair-share.max-running-per-teacher:0}") int maxRunningPerTeacher,
+            MeterRegistry meterRegistry) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            // Workers spend nearly all their time blocked on OCR and scoring; on virtual threads a blocked
+            // worker costs a few KB, and OcrClient/ScoringClient limit what actually reaches the services.
+            // DB connections are not bounded by the worker count: see spring.jobs.max-item-transactions
+            log.info("[TASKS] Running async tasks on up to {} virtual threads", maxInFlight);
+            return new PriorityTaskExecutor(Thread.ofVirtual().name("AsyncVirtual-", 0).factory(), maxInFlight,
+                    interactiveQueueCapacity, meterRegistry, parseWeights(weights),
+                    maxRunningPerCollege, maxRunningPerTeacher);
+        }
+
+        // Bulk items take DB connections through BulkJobService's permits; a single-sheet evaluation holds two
+        // (evaluation + score cache write), so the Hikari pool needs 2 x pool-size besides the bulk permits.
+        // ⚠️ When deploying on larger plans (e.g., 2GB/8CPU), increase the pool size
+        // to better handle high concurrency from multiple external service calls.
+        return new PriorityTaskExecutor(platformThreads("AsyncExternal-"), poolSize, interactiveQueueCapacity,
+                meterRegistry, parseWeights(weights), maxRunningPerCollege, maxRunningPerTeacher);
+    }
+
     @Bean(name = "externalTaskExecutor")
-    public Executor externalTaskExecutor() {
+    public Executor externalTaskExecutor(PriorityTaskExecutor sharedTaskExecutor) {
+        // Single-sheet async tasks (OCR, evaluation, etc.)
+        return sharedTaskExecutor.forPriority(WorkPriority.INTERACTIVE);
+    }
+
+    @Bean(name = "bulkJobExecutor")
+    public Executor bulkJobExecutor(@Value("${spring.jobs.max-running-jobs:8}") int maxRunningJobs) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
-        // Core thread pool for external async tasks (OCR, evaluation, etc.)
-        executor.setCorePoolSize(2);        // Minimum active threads
-        executor.setMaxPoolSize(4);         // Max threads for high load
-        executor.setQueueCapacity(50);      // Task queue before new threads spawn
+        // One dispatcher thread per running bulk job; further jobs wait here until one finishes.
+        // Dispatchers only feed the fair-share queue, so this can be well above the task pool size.
+        executor.setCorePoolSize(maxRunningJobs);
+        executor.setMaxPoolSize(maxRunningJobs);
 
-        executor.setThreadNamePrefix("AsyncExternal-");
+        executor.setThreadNamePrefix("BulkJob-");
         executor.initialize();
+        return executor;
+    }
 
-        // ⚠️ When deploying on larger plans (e.g., 2GB/8CPU), increase pool/queue size
-        // to better handle high concurrency from multiple external service calls.
+    @Bean(name = "ocrPreprocessExecutor")
+    public Executor ocrPreprocessExecutor(@Value("${spring.ocr.preprocess.threads:0}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        // Image decoding and re-encoding is pure CPU work: at most one thread per core by default,
+        // however many task threads are waiting for their pages
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
 
+        executor.setThreadNamePrefix("OcrPreprocess-");
+        executor.initialize();
         return executor;
     }
-}
 
+    private static ThreadFactory platformThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // "College A=3, College A/alice=2" -> weight per college or per college/teacher
+    private static Map<String, Integer> parseWeights(String weights) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String entry : weights.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (entry.isBlank()) continue;
+            if (eq <= 0) throw new IllegalArgumentException("Invalid fair-share weight '" + entry.trim() + "', expected tenant=weight");
+            parsed.put(entry.substring(0, eq).trim(), Integer.parseInt(entry.substring(eq + 1).trim()));
+        }
+        return parsed;
+    }
+}
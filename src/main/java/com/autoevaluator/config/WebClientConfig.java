@@ -0,0 +1,91 @@
+package com.autoevaluator.config;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Shared, pooled WebClients for the external OCR and scoring services.
+ * Each service gets its own connection pool so a slow OCR run cannot starve scoring calls.
+ * Pool gauges are published under reactor.netty.connection.provider.* (see /actuator/metrics).
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Bean(name = "scoringConnectionProvider", destroyMethod = "dispose")
+    public ConnectionProvider scoringConnectionProvider(
+            @Value("${spring.scoring.pool.max-connections:50}") int maxConnections,
+            @Value("${spring.scoring.pool.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${spring.scoring.pool.pending-acquire-timeout:30s}") Duration pendingAcquireTimeout,
+            @Value("${spring.scoring.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${spring.scoring.pool.max-life-time:5m}") Duration maxLifeTime) {
+        return buildConnectionProvider("scoring", maxConnections, pendingAcquireMaxCount,
+                pendingAcquireTimeout, maxIdleTime, maxLifeTime);
+    }
+
+    @Bean(name = "ocrConnectionProvider", destroyMethod = "dispose")
+    public ConnectionProvider ocrConnectionProvider(
+            @Value("${spring.ocr.pool.max-connections:16}") int maxConnections,
+            @Value("${spring.ocr.pool.pending-acquire-max-count:200}") int pendingAcquireMaxCount,
+            @Value("${spring.ocr.pool.pending-acquire-timeout:60s}") Duration pendingAcquireTimeout,
+            @Value("${spring.ocr.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${spring.ocr.pool.max-life-time:5m}") Duration maxLifeTime) {
+        return buildConnectionProvider("ocr", maxConnections, pendingAcquireMaxCount,
+                pendingAcquireTimeout, maxIdleTime, maxLifeTime);
+    }
+
+    @Bean(name = "scoringWebClient")
+    public WebClient scoringWebClient(WebClient.Builder builder,
+                                      @Qualifier("scoringConnectionProvider") ConnectionProvider connectionProvider) {
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(buildHttpClient(connectionProvider)))
+                .build();
+    }
+
+    @Bean(name = "ocrWebClient")
+    public WebClient ocrWebClient(WebClient.Builder builder,
+                                  @Qualifier("ocrConnectionProvider") ConnectionProvider connectionProvider) {
+        // Load from environment or fallback
+        String ocrUrl = System.getenv("OCR_URL");
+        if (ocrUrl == null || ocrUrl.isBlank()) {
+            ocrUrl = Dotenv.configure().ignoreIfMissing().load().get("OCR_URL", "http://localhost:8000");
+        }
+
+        return builder.clone()
+                .baseUrl(ocrUrl)
+                .clientConnector(new ReactorClientHttpConnector(buildHttpClient(connectionProvider)))
+                .build();
+    }
+
+    private ConnectionProvider buildConnectionProvider(String name, int maxConnections, int pendingAcquireMaxCount,
+                                                       Duration pendingAcquireTimeout, Duration maxIdleTime,
+                                                       Duration maxLifeTime) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)                       // drop connections the server may already have closed
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)                                  // active/idle/pending gauges for pool sizing
+                .build();
+    }
+
+    private HttpClient buildHttpClient(ConnectionProvider connectionProvider) {
+        // 20s response timeout, same as the per-request timeouts in the clients
+        return HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .responseTimeout(Duration.ofSeconds(20));
+    }
+}
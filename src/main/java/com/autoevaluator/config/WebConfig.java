@@ -7,6 +7,8 @@ import org.springframework.web.servlet.config.annotation.*;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final AdmissionInterceptor admissionInterceptor;
+
     private static final String FRONTEND_URL;
 
     static {
@@ -23,6 +25,17 @@ public class WebConfig implements WebMvcConfigurer {
         System.out.println("[CORS] Allowing origin: " + FRONTEND_URL);
     }
 
+    public WebConfig(AdmissionInterceptor admissionInterceptor) {
+        this.admissionInterceptor = admissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns(AdmissionInterceptor.INTERACTIVE_PATHS.toArray(String[]::new))
+                .addPathPatterns(AdmissionInterceptor.BULK_PATHS.toArray(String[]::new));
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
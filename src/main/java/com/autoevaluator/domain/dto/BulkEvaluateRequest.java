@@ -11,4 +11,5 @@ public class BulkEvaluateRequest {
     private String courseName;
     private String evaluationType; // MIDTERM, ENDTERM, ASSIGNMENT
     private Integer assignmentNumber; // Optional unless type == ASSIGNMENT
+    private Boolean incremental; // Optional: only rescore questions whose answer, key or marks changed
 }
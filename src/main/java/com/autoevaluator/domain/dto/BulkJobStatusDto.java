@@ -0,0 +1,29 @@
+package com.autoevaluator.domain.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class BulkJobStatusDto {
+    private Long jobId;
+    private String jobType;          // EVALUATION, UPLOAD
+    private String sheetType;
+    private String courseName;
+    private String assignmentNumber;
+    private String status;           // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    private boolean evaluateOnUpload; // upload job that also evaluates each student
+    private int total;
+    private int processed;           // finished items, failed ones included
+    private int failed;
+    private Double throughputPerMinute;
+    private Long p50LatencyMillis;
+    private Long p95LatencyMillis;
+    private Long etaSeconds;         // only while the job is running
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -35,4 +35,7 @@ public class AnswerScore {
     private String answerText;   // stores detailed answer text
 
     private String feedback;
+
+    @Column(length = 64)
+    private String fingerprint;   // hash of the answer text, answer key, marks, scorer and provisional flag of this score
 }
@@ -0,0 +1,55 @@
+package com.autoevaluator.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A bulk evaluation or bulk upload of one course, persisted so it survives restarts.
+ * The work itself is split into {@link BulkJobItem} rows, one per student.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private BulkJobType jobType;
+
+    @Enumerated(EnumType.STRING)
+    private BulkJobStatus status;
+
+    @Enumerated(EnumType.STRING)
+    private AnswerSheetType sheetType;
+
+    private String courseName;
+    private String assignmentNumber;
+    private String teacherUsername;
+    // Tenant for fair sharing of the task pool
+    private String collegeName;
+    private boolean incremental;
+    // Upload job run as a pipeline that also evaluates each student once their sheet is saved
+    @Column(columnDefinition = "boolean not null default false")
+    private boolean evaluateOnUpload;
+
+    // Spooled ZIP of an upload job, deleted once the job finishes
+    private String payloadPath;
+
+    private int totalItems;
+    private int processedItems;
+    private int failedItems;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
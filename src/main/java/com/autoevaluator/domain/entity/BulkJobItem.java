@@ -0,0 +1,41 @@
+package com.autoevaluator.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One student of a {@link BulkJob}. Items are claimed with SELECT ... FOR UPDATE SKIP LOCKED and
+ * marked DONE in the same transaction that saves the student's result, so finished work is never redone.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_bulk_job_item_job_status", columnList = "jobId, status"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkJobItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long jobId;
+
+    // Student username for evaluation jobs, roll number (ZIP folder) for upload jobs
+    private String itemKey;
+    private String rollNo;
+
+    @Enumerated(EnumType.STRING)
+    private BulkJobItemStatus status;
+
+    private int attempts;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private LocalDateTime claimedAt;
+    private LocalDateTime finishedAt;
+    private Long latencyMillis;
+}
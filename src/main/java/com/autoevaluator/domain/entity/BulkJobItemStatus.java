@@ -0,0 +1,9 @@
+package com.autoevaluator.domain.entity;
+
+public enum BulkJobItemStatus {
+    PENDING,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED
+}
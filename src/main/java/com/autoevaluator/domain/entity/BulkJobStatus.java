@@ -0,0 +1,9 @@
+package com.autoevaluator.domain.entity;
+
+public enum BulkJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
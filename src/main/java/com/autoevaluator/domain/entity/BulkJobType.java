@@ -0,0 +1,6 @@
+package com.autoevaluator.domain.entity;
+
+public enum BulkJobType {
+    EVALUATION,
+    UPLOAD
+}
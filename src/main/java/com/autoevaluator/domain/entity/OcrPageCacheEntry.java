@@ -0,0 +1,35 @@
+package com.autoevaluator.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * OCR text of one page image. The id is a SHA-256 over the OCR service version and the image bytes,
+ * so a re-uploaded page is recognised whatever its file name.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_ocr_page_cache_last_used", columnList = "lastUsedAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OcrPageCacheEntry {
+
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    @Column(columnDefinition = "TEXT")
+    private String text;
+
+    // UTF-8 length of the text, summed for the cache's size limit
+    private int sizeBytes;
+
+    private String ocrVersion;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime lastUsedAt;
+}
@@ -0,0 +1,45 @@
+package com.autoevaluator.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * One answer of an uploaded answer sheet, as parsed from its OCR text at upload time, so evaluation and
+ * the raw-answer views read answers directly instead of re-parsing the sheet text.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_parsed_answer_sheet", columnList = "enrolmentId, sheetType, assignmentNumber"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ParsedAnswer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The database drops the rows with their enrolment, however it is deleted (student, course, ...)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "enrolmentId", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Enrolment enrolment;
+
+    @Enumerated(EnumType.STRING)
+    private AnswerSheetType sheetType;
+
+    // Assignment number for ASSIGNMENT sheets, "" for midterm and endterm
+    private String assignmentNumber;
+
+    // Order of the answer on the sheet (by question number)
+    private int position;
+
+    private String answerLabel;   // e.g. "Ans1", "Ans2"
+
+    @Column(columnDefinition = "TEXT")
+    private String answerText;
+}
@@ -58,4 +58,8 @@ public class QuestionPaper {
     @Column(nullable = true)
     private Integer assignmentNumber;
 
+    // Bumped whenever a question or answer key of the paper changes; keys the compiled answer-key cache
+    @Column(nullable = true)
+    private Integer answerKeyVersion = 0;
+
 }
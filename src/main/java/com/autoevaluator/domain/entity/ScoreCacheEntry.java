@@ -0,0 +1,31 @@
+package com.autoevaluator.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persistent tier of the scoring cache. The id is a SHA-256 over the normalized
+ * answer key, normalized student answer, question marks and scorer version.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScoreCacheEntry {
+
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    private double score;
+    private double entailment;
+    private double neutral;
+    private double contradiction;
+
+    private String scorerVersion;
+
+    private LocalDateTime createdAt;
+}
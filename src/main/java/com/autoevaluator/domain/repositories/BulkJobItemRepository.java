@@ -0,0 +1,49 @@
+package com.autoevaluator.domain.repositories;
+
+import com.autoevaluator.domain.entity.BulkJobItem;
+import com.autoevaluator.domain.entity.BulkJobItemStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface BulkJobItemRepository extends JpaRepository<BulkJobItem, Long> {
+
+    /**
+     * Locks up to {@code limit} claimable items of the job, skipping rows another worker already holds.
+     * Items left RUNNING by a worker that stopped before {@code staleBefore} are claimable again.
+     */
+    @Query(value = "SELECT * FROM BulkJobItem WHERE jobId = :jobId " +
+            "AND (status = 'PENDING' OR (status = 'RUNNING' AND claimedAt < :staleBefore)) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<BulkJobItem> lockClaimable(@Param("jobId") Long jobId,
+                                    @Param("staleBefore") LocalDateTime staleBefore,
+                                    @Param("limit") int limit);
+
+    /**
+     * Locks the item of the job with the given key if it is claimable and no other worker holds it.
+     */
+    @Query(value = "SELECT * FROM BulkJobItem WHERE jobId = :jobId AND itemKey = :itemKey " +
+            "AND (status = 'PENDING' OR (status = 'RUNNING' AND claimedAt < :staleBefore)) " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<BulkJobItem> lockClaimableByKey(@Param("jobId") Long jobId,
+                                         @Param("itemKey") String itemKey,
+                                         @Param("staleBefore") LocalDateTime staleBefore);
+
+    long countByJobIdAndStatusIn(Long jobId, Collection<BulkJobItemStatus> statuses);
+
+    @Modifying
+    @Query("UPDATE BulkJobItem i SET i.status = :to WHERE i.status = :from")
+    int updateStatus(@Param("from") BulkJobItemStatus from, @Param("to") BulkJobItemStatus to);
+
+    @Modifying
+    @Query("UPDATE BulkJobItem i SET i.status = :to WHERE i.jobId = :jobId AND i.status = :from")
+    int updateStatusForJob(@Param("jobId") Long jobId, @Param("from") BulkJobItemStatus from, @Param("to") BulkJobItemStatus to);
+
+    @Query("SELECT i.latencyMillis FROM BulkJobItem i WHERE i.jobId = :jobId AND i.latencyMillis IS NOT NULL")
+    List<Long> findLatencyMillisByJobId(@Param("jobId") Long jobId);
+}
@@ -0,0 +1,27 @@
+package com.autoevaluator.domain.repositories;
+
+import com.autoevaluator.domain.entity.BulkJob;
+import com.autoevaluator.domain.entity.BulkJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BulkJobRepository extends JpaRepository<BulkJob, Long> {
+
+    List<BulkJob> findByStatusInOrderByIdAsc(Collection<BulkJobStatus> statuses);
+
+    List<BulkJob> findTop20ByTeacherUsernameOrderByIdDesc(String teacherUsername);
+
+    long countByStatusIn(Collection<BulkJobStatus> statuses);
+
+    long countByTeacherUsernameAndStatusIn(String teacherUsername, Collection<BulkJobStatus> statuses);
+
+    @Modifying
+    @Query("UPDATE BulkJob j SET j.processedItems = j.processedItems + 1, " +
+            "j.failedItems = j.failedItems + :failed WHERE j.id = :jobId")
+    int incrementProgress(@Param("jobId") Long jobId, @Param("failed") int failed);
+}
@@ -0,0 +1,26 @@
+package com.autoevaluator.domain.repositories;
+
+import com.autoevaluator.domain.entity.OcrPageCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface OcrPageCacheRepository extends JpaRepository<OcrPageCacheEntry, String> {
+
+    @Modifying
+    @Query("UPDATE OcrPageCacheEntry e SET e.lastUsedAt = :now WHERE e.cacheKey IN :keys")
+    int touch(@Param("keys") Collection<String> keys, @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes the least recently used entries until the text of the ones kept fits in {@code maxBytes}.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM OcrPageCacheEntry WHERE cacheKey IN (" +
+            "SELECT cacheKey FROM (SELECT cacheKey, SUM(sizeBytes) OVER (ORDER BY lastUsedAt DESC, cacheKey) AS kept " +
+            "FROM OcrPageCacheEntry) ranked WHERE kept > :maxBytes)", nativeQuery = true)
+    int evictLeastRecentlyUsed(@Param("maxBytes") long maxBytes);
+}
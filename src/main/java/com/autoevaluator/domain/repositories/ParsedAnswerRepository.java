@@ -0,0 +1,23 @@
+package com.autoevaluator.domain.repositories;
+
+import com.autoevaluator.domain.entity.AnswerSheetType;
+import com.autoevaluator.domain.entity.ParsedAnswer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ParsedAnswerRepository extends JpaRepository<ParsedAnswer, Long> {
+
+    List<ParsedAnswer> findByEnrolment_IdAndSheetTypeAndAssignmentNumberOrderByPositionAsc(
+            Long enrolmentId, AnswerSheetType sheetType, String assignmentNumber);
+
+    @Modifying
+    @Query("DELETE FROM ParsedAnswer a WHERE a.enrolment.id = :enrolmentId " +
+            "AND a.sheetType = :sheetType AND a.assignmentNumber = :assignmentNumber")
+    int deleteSheet(@Param("enrolmentId") Long enrolmentId,
+                    @Param("sheetType") AnswerSheetType sheetType,
+                    @Param("assignmentNumber") String assignmentNumber);
+}
@@ -0,0 +1,7 @@
+package com.autoevaluator.domain.repositories;
+
+import com.autoevaluator.domain.entity.ScoreCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ScoreCacheRepository extends JpaRepository<ScoreCacheEntry, String> {
+}
@@ -0,0 +1,172 @@
+package com.autoevaluator.util;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AIMD concurrency limiter with a circuit breaker, for calls to an external service.
+ *
+ * The in-flight limit grows by one while calls complete faster than {@code latencyThreshold} and the limit
+ * is actually being used, and is multiplied by {@code backoffRatio} when a call times out, fails with an
+ * overload error or is slower than the threshold. Requests above the limit, or arriving while the breaker
+ * is open, wait in a queue instead of failing; they only fail after {@code maxQueueWait}. The queue is FIFO
+ * per {@link WorkPriority}, and interactive requests are always granted before queued bulk ones.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Outcome { SUCCESS, DROPPED, IGNORED }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final Duration maxQueueWait;
+    private final CircuitBreaker circuitBreaker;
+
+    private final Deque<Waiter> interactiveWaiters = new ArrayDeque<>();
+    private final Deque<Waiter> bulkWaiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private boolean drainScheduled;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                      Duration latencyThreshold, Duration maxQueueWait, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.maxQueueWait = maxQueueWait;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Emits a permit once the request may be sent. The permit must be released exactly once with the outcome.
+     */
+    public Mono<Permit> acquire() {
+        return acquire(WorkPriority.INTERACTIVE);
+    }
+
+    public Mono<Permit> acquire(WorkPriority priority) {
+        Deque<Waiter> waiters = priority == WorkPriority.BULK ? bulkWaiters : interactiveWaiters;
+        return Mono.<Permit>create(sink -> {
+                    Waiter waiter = new Waiter(sink);
+                    synchronized (this) {
+                        waiters.addLast(waiter);
+                    }
+                    sink.onCancel(() -> {
+                        synchronized (this) {
+                            waiters.remove(waiter);
+                        }
+                    });
+                    drain();
+                })
+                // A permit granted to a request that was cancelled at the same moment is handed back
+                .doOnDiscard(Permit.class, permit -> permit.release(Outcome.IGNORED))
+                .timeout(maxQueueWait, Mono.error(() -> new RuntimeException(
+                        name + " service unavailable: request waited " + maxQueueWait.toSeconds() + "s in queue")));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return interactiveWaiters.size() + bulkWaiters.size();
+    }
+
+    public synchronized int getQueued(WorkPriority priority) {
+        return priority == WorkPriority.BULK ? bulkWaiters.size() : interactiveWaiters.size();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private void drain() {
+        Deque<Waiter> granted = new ArrayDeque<>();
+        long retryInMillis = 0;
+
+        synchronized (this) {
+            while (hasWaiters() && inFlight < (int) limit && circuitBreaker.tryAcquire()) {
+                granted.add(!interactiveWaiters.isEmpty() ? interactiveWaiters.pollFirst() : bulkWaiters.pollFirst());
+                inFlight++;
+            }
+            if (hasWaiters() && circuitBreaker.getState() == CircuitBreaker.State.OPEN && !drainScheduled) {
+                // Nothing will release a permit while the breaker is open, so wake up when it half-opens
+                drainScheduled = true;
+                retryInMillis = Math.max(1, circuitBreaker.remainingOpenMillis());
+            }
+        }
+
+        for (Waiter waiter : granted) {
+            waiter.sink.success(new Permit());
+        }
+
+        if (retryInMillis > 0) {
+            Schedulers.parallel().schedule(() -> {
+                synchronized (this) {
+                    drainScheduled = false;
+                }
+                drain();
+            }, retryInMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean hasWaiters() {
+        return !interactiveWaiters.isEmpty() || !bulkWaiters.isEmpty();
+    }
+
+    private void onRelease(Outcome outcome, long elapsedNanos) {
+        synchronized (this) {
+            inFlight--;
+            if (outcome == Outcome.DROPPED || (outcome == Outcome.SUCCESS && elapsedNanos > latencyThresholdNanos)) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (outcome == Outcome.SUCCESS && inFlight + 1 >= limit / 2) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+
+        switch (outcome) {
+            case SUCCESS -> circuitBreaker.onSuccess();
+            case DROPPED -> circuitBreaker.onFailure();
+            case IGNORED -> circuitBreaker.onIgnored();
+        }
+        drain();
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+
+    public final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Returns the permit and feeds the outcome and latency back into the limit. Further calls are no-ops.
+         */
+        public void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                onRelease(outcome, System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.autoevaluator.util;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row it opens for
+ * {@code openMillis}; then a single probe request is let through (half-open) to decide whether to close again.
+ * Callers are expected to queue work while the breaker is open rather than fail it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Returns true if a request may be sent now. In half-open state only one probe is allowed at a time.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openMillis) return false;
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The request finished without telling us anything about the service (e.g. it was cancelled).
+     */
+    public synchronized void onIgnored() {
+        probeInFlight = false;
+    }
+
+    /**
+     * Milliseconds until an open breaker will allow a probe, 0 if requests may be sent now.
+     */
+    public synchronized long remainingOpenMillis() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0, openMillis - (System.currentTimeMillis() - openedAt));
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,168 @@
+package com.autoevaluator.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Weighted fair queue of tasks keyed by college and teacher, using deficit round robin on two levels:
+ * colleges share the workers in proportion to their weight, and within a college its teachers share the
+ * college's turns in proportion to theirs. A tenant at its concurrency cap is skipped until one of its
+ * tasks finishes, so one department uploading twenty ZIPs cannot hold every worker.
+ *
+ * Not thread-safe; the owner guards it with its own lock.
+ */
+public class FairShareQueue<T> {
+
+    public record Tenant(String college, String teacher) {
+
+        public Tenant {
+            college = college != null ? college : "unknown";
+            teacher = teacher != null ? teacher : "unknown";
+        }
+
+        @Override
+        public String toString() {
+            return college + "/" + teacher;
+        }
+    }
+
+    private final Map<String, Integer> weights;
+    private final int maxRunningPerCollege;
+    private final int maxRunningPerTeacher;
+
+    private final Map<String, CollegeFlow> colleges = new HashMap<>();
+    private final Deque<CollegeFlow> activeColleges = new ArrayDeque<>();
+    private int size;
+
+    /**
+     * @param weights weight per college name or per "college/teacher", 1 for tenants not listed
+     * @param maxRunningPerCollege tasks of one college running at once, 0 for no cap
+     * @param maxRunningPerTeacher tasks of one teacher running at once, 0 for no cap
+     */
+    public FairShareQueue(Map<String, Integer> weights, int maxRunningPerCollege, int maxRunningPerTeacher) {
+        this.weights = Map.copyOf(weights);
+        this.maxRunningPerCollege = maxRunningPerCollege > 0 ? maxRunningPerCollege : Integer.MAX_VALUE;
+        this.maxRunningPerTeacher = maxRunningPerTeacher > 0 ? maxRunningPerTeacher : Integer.MAX_VALUE;
+    }
+
+    public void add(Tenant tenant, T task) {
+        CollegeFlow college = colleges.computeIfAbsent(tenant.college(), CollegeFlow::new);
+        TeacherFlow teacher = college.teachers.computeIfAbsent(tenant.teacher(),
+                name -> new TeacherFlow(weightOf(tenant.college() + "/" + name)));
+        if (teacher.tasks.isEmpty()) college.activeTeachers.addLast(teacher);
+        if (college.queued == 0) activeColleges.addLast(college);
+        teacher.tasks.addLast(new Entry<>(tenant, task));
+        college.queued++;
+        size++;
+    }
+
+    /**
+     * Removes the next task to run and counts it as running for its tenant until {@link #finished} is called,
+     * or returns null if the queue is empty or every tenant with queued tasks is at its cap.
+     */
+    public Entry<T> poll() {
+        for (int visited = 0, n = activeColleges.size(); visited < n; visited++) {
+            CollegeFlow college = activeColleges.peekFirst();
+            TeacherFlow teacher = college.running < maxRunningPerCollege ? nextTeacher(college) : null;
+            if (teacher == null) {
+                // Capped: no credit builds up while it waits
+                activeColleges.addLast(activeColleges.pollFirst());
+                continue;
+            }
+
+            if (college.deficit < 1) college.deficit += college.weight;
+            college.deficit--;
+            if (teacher.deficit < 1) teacher.deficit += teacher.weight;
+            teacher.deficit--;
+
+            Entry<T> entry = teacher.tasks.pollFirst();
+            college.queued--;
+            college.running++;
+            teacher.running++;
+            size--;
+
+            if (teacher.tasks.isEmpty()) {
+                college.activeTeachers.remove(teacher);
+                teacher.deficit = 0;
+            } else if (teacher.deficit < 1) {
+                college.activeTeachers.remove(teacher);
+                college.activeTeachers.addLast(teacher);
+            }
+            if (college.queued == 0) {
+                activeColleges.pollFirst();
+                college.deficit = 0;
+            } else if (college.deficit < 1) {
+                activeColleges.addLast(activeColleges.pollFirst());
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    public void finished(Tenant tenant) {
+        CollegeFlow college = colleges.get(tenant.college());
+        if (college == null) return;
+        college.running--;
+        TeacherFlow teacher = college.teachers.get(tenant.teacher());
+        if (teacher != null) teacher.running--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int queued(Tenant tenant) {
+        CollegeFlow college = colleges.get(tenant.college());
+        TeacherFlow teacher = college != null ? college.teachers.get(tenant.teacher()) : null;
+        return teacher != null ? teacher.tasks.size() : 0;
+    }
+
+    public int running(Tenant tenant) {
+        CollegeFlow college = colleges.get(tenant.college());
+        TeacherFlow teacher = college != null ? college.teachers.get(tenant.teacher()) : null;
+        return teacher != null ? teacher.running : 0;
+    }
+
+    // Next teacher of the college below its cap, rotating the ones at their cap to the back
+    private TeacherFlow nextTeacher(CollegeFlow college) {
+        for (int visited = 0, n = college.activeTeachers.size(); visited < n; visited++) {
+            TeacherFlow teacher = college.activeTeachers.peekFirst();
+            if (teacher.running < maxRunningPerTeacher) return teacher;
+            college.activeTeachers.addLast(college.activeTeachers.pollFirst());
+        }
+        return null;
+    }
+
+    private int weightOf(String tenant) {
+        return Math.max(1, weights.getOrDefault(tenant, 1));
+    }
+
+    public record Entry<T>(Tenant tenant, T task) {
+    }
+
+    private final class CollegeFlow {
+        private final int weight;
+        private final Map<String, TeacherFlow> teachers = new HashMap<>();
+        private final Deque<TeacherFlow> activeTeachers = new ArrayDeque<>();
+        private int deficit;
+        private int queued;
+        private int running;
+
+        private CollegeFlow(String name) {
+            this.weight = weightOf(name);
+        }
+    }
+
+    private final class TeacherFlow {
+        private final int weight;
+        private final Deque<Entry<T>> tasks = new ArrayDeque<>();
+        private int deficit;
+        private int running;
+
+        private TeacherFlow(int weight) {
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.autoevaluator.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * One stage of a pipeline: a bounded queue drained by its own worker threads. Once an item is handled the
+ * worker puts it on the next stage, blocking while that stage's queue is full, so a slow stage holds back
+ * the ones before it instead of letting work pile up in memory.
+ *
+ * Stage workers run as {@link WorkPriority#BULK}. With an executor, a worker hands the handler to the
+ * executor the item names and waits for it, so the work itself queues for the shared task pool like any
+ * other bulk task; the stage's worker count then caps how many of its items are in that pool at once.
+ *
+ * Meters, all tagged with the stage name: pipeline.stage.queue.depth and pipeline.stage.busy (gauges),
+ * pipeline.stage.time (per item, including any wait for the executor; its count is the stage's throughput),
+ * pipeline.stage.failed and pipeline.stage.put.wait, the time producers spent blocked on a full queue.
+ */
+public class PipelineStage<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineStage.class);
+
+    @FunctionalInterface
+    public interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface ErrorHandler<T> {
+        void failed(T item, Exception error) throws InterruptedException;
+    }
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final Function<T, Executor> executor;
+    private final Handler<T> handler;
+    private final PipelineStage<T> next;
+    private final ErrorHandler<T> errorHandler;
+    private final AtomicInteger busy = new AtomicInteger();
+
+    private final Timer time;
+    private final Timer putWait;
+    private final Counter failed;
+
+    /**
+     * @param executor where an item's handler runs, or null to run it on the stage worker itself
+     * @param next     stage that gets each handled item, or null for the last stage
+     */
+    public PipelineStage(String name, int workers, int capacity, Function<T, Executor> executor, Handler<T> handler,
+                         PipelineStage<T> next, ErrorHandler<T> errorHandler, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.executor = executor;
+        this.handler = handler;
+        this.next = next;
+        this.errorHandler = errorHandler;
+
+        Gauge.builder("pipeline.stage.queue.depth", queue, BlockingQueue::size).tag("stage", name).register(meterRegistry);
+        Gauge.builder("pipeline.stage.busy", busy, AtomicInteger::get).tag("stage", name).register(meterRegistry);
+        this.time = Timer.builder("pipeline.stage.time").tag("stage", name).register(meterRegistry);
+        this.putWait = Timer.builder("pipeline.stage.put.wait").tag("stage", name).register(meterRegistry);
+        this.failed = Counter.builder("pipeline.stage.failed").tag("stage", name).register(meterRegistry);
+
+        for (int i = 1; i <= Math.max(1, workers); i++) {
+            Thread thread = new Thread(this::work, "Pipeline-" + name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues the item, waiting while the stage is full.
+     */
+    public void put(T item) throws InterruptedException {
+        if (queue.offer(item)) return;
+        long start = System.nanoTime();
+        queue.put(item);
+        putWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void work() {
+        WorkPriority.set(WorkPriority.BULK);
+        while (true) {
+            T item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            busy.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                handle(item);
+                if (next != null) next.put(item);
+            } catch (InterruptedException e) {
+                log.warn("[PIPELINE] Stage {} interrupted, stopping {}", name, Thread.currentThread().getName());
+                return;
+            } catch (Exception e) {
+                failed.increment();
+                try {
+                    errorHandler.failed(item, e);
+                } catch (InterruptedException ie) {
+                    return;
+                } catch (RuntimeException re) {
+                    log.error("[PIPELINE] Stage {} could not handle a failed item: {}", name, re.getMessage(), re);
+                }
+            } finally {
+                busy.decrementAndGet();
+                time.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void handle(T item) throws Exception {
+        if (executor == null) {
+            handler.handle(item);
+            return;
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        executor.apply(item).execute(() -> {
+            try {
+                handler.handle(item);
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            }
+        });
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            // A pool thread interrupted mid-item fails just that item; only this worker's own interrupt stops it
+            if (e.getCause() instanceof Exception cause && !(cause instanceof InterruptedException)) throw cause;
+            throw e;
+        }
+    }
+}
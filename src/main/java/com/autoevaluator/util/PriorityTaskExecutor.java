@@ -0,0 +1,239 @@
+package com.autoevaluator.util;
+
+import com.autoevaluator.util.FairShareQueue.Tenant;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of worker threads shared by interactive and bulk work. The workers may be platform or virtual
+ * threads (see AsyncConfig); with virtual threads the worker count can be in the hundreds, and the
+ * external services are protected by their own limits instead of by the pool size.
+ *
+ * Whenever a thread frees up, a queued interactive task (FIFO) runs before any bulk task, so a single-sheet
+ * request waits for at most the bulk items already running. Bulk tasks are tagged with the college and teacher
+ * they belong to and taken from a {@link FairShareQueue}, so tenants share the remaining capacity by weight
+ * and within their concurrency caps. Tasks see their priority through {@link WorkPriority#current()}.
+ * The interactive queue is bounded: once it holds interactiveQueueCapacity tasks, further ones are rejected.
+ */
+public class PriorityTaskExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PriorityTaskExecutor.class);
+
+    private static final Tenant UNKNOWN_TENANT = new Tenant(null, null);
+
+    private final MeterRegistry meterRegistry;
+    private final Deque<Runnable> interactive = new ArrayDeque<>();
+    private final FairShareQueue<Runnable> bulk;
+    private final Set<Tenant> meteredTenants = ConcurrentHashMap.newKeySet();
+    // A lock rather than synchronized/wait, which would pin a virtual worker to its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private boolean shutdown;
+
+    private final int workers;
+    private final int interactiveQueueCapacity;
+    // Exponentially weighted mean run time per priority, in nanos (-1 before the first task)
+    private final AtomicLongArray meanRunNanos = new AtomicLongArray(WorkPriority.values().length);
+
+    public PriorityTaskExecutor(ThreadFactory threadFactory, int workers, int interactiveQueueCapacity,
+                                MeterRegistry meterRegistry, Map<String, Integer> tenantWeights,
+                                int maxRunningPerCollege, int maxRunningPerTeacher) {
+        this.meterRegistry = meterRegistry;
+        this.workers = workers;
+        this.interactiveQueueCapacity = interactiveQueueCapacity;
+        for (int i = 0; i < meanRunNanos.length(); i++) meanRunNanos.set(i, Double.doubleToLongBits(-1));
+        this.bulk = new FairShareQueue<>(tenantWeights, maxRunningPerCollege, maxRunningPerTeacher);
+
+        Gauge.builder("tasks.queue.depth", this, e -> e.getQueued(WorkPriority.INTERACTIVE))
+                .tag("priority", "interactive").register(meterRegistry);
+        Gauge.builder("tasks.queue.depth", this, e -> e.getQueued(WorkPriority.BULK))
+                .tag("priority", "bulk").register(meterRegistry);
+
+        for (int i = 0; i < workers; i++) {
+            threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * Executor view that queues every task with the given priority; bulk tasks go to an "unknown" tenant.
+     */
+    public Executor forPriority(WorkPriority priority) {
+        return priority == WorkPriority.BULK ? forTenant(UNKNOWN_TENANT) : this::executeInteractive;
+    }
+
+    /**
+     * Executor view that queues bulk tasks on behalf of the given college and teacher.
+     */
+    public Executor forTenant(Tenant tenant) {
+        registerTenantMeters(tenant);
+        return task -> {
+            lock.lock();
+            try {
+                if (shutdown) throw new RejectedExecutionException("Task pool is shut down");
+                bulk.add(tenant, task);
+                workAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    public int getQueued(WorkPriority priority) {
+        lock.lock();
+        try {
+            return priority == WorkPriority.BULK ? bulk.size() : interactive.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued(Tenant tenant) {
+        lock.lock();
+        try {
+            return bulk.queued(tenant);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunning(Tenant tenant) {
+        lock.lock();
+        try {
+            return bulk.running(tenant);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Rough wait before a task submitted now with the given priority starts: the work queued ahead of it
+     * (interactive tasks wait only for interactive ones) spread over all workers. 0 until a task has run.
+     */
+    public long getEstimatedWaitMillis(WorkPriority priority) {
+        int interactiveAhead;
+        int bulkAhead;
+        lock.lock();
+        try {
+            interactiveAhead = interactive.size();
+            bulkAhead = priority == WorkPriority.BULK ? bulk.size() : 0;
+        } finally {
+            lock.unlock();
+        }
+        double aheadNanos = interactiveAhead * meanRunNanos(WorkPriority.INTERACTIVE)
+                + bulkAhead * meanRunNanos(WorkPriority.BULK);
+        return Math.round(aheadNanos / workers / 1e6);
+    }
+
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void executeInteractive(Runnable task) {
+        lock.lock();
+        try {
+            if (shutdown) throw new RejectedExecutionException("Task pool is shut down");
+            // AdmissionControl turns most requests away before this; the bound holds for any other caller
+            if (interactive.size() >= interactiveQueueCapacity) {
+                throw new RejectedExecutionException("Interactive task queue is full (" + interactiveQueueCapacity + " tasks)");
+            }
+            interactive.addLast(task);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Runnable task;
+            FairShareQueue.Entry<Runnable> bulkEntry = null;
+            lock.lock();
+            try {
+                while (true) {
+                    task = interactive.pollFirst();
+                    if (task == null) {
+                        bulkEntry = bulk.poll();
+                        if (bulkEntry != null) task = bulkEntry.task();
+                    }
+                    if (task != null || shutdown) break;
+                    workAvailable.await();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (task == null) return;
+
+            WorkPriority priority = bulkEntry != null ? WorkPriority.BULK : WorkPriority.INTERACTIVE;
+            WorkPriority.set(priority);
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("[TASKS] Task failed on {}: {}", Thread.currentThread().getName(), e.getMessage(), e);
+            } finally {
+                WorkPriority.set(null);
+                recordRunTime(priority, System.nanoTime() - start);
+                if (bulkEntry != null) {
+                    lock.lock();
+                    try {
+                        bulk.finished(bulkEntry.tenant());
+                        // A tenant below its cap again may have tasks another idle thread can take
+                        workAvailable.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    private double meanRunNanos(WorkPriority priority) {
+        return Math.max(0, Double.longBitsToDouble(meanRunNanos.get(priority.ordinal())));
+    }
+
+    private void recordRunTime(WorkPriority priority, long nanos) {
+        int index = priority.ordinal();
+        while (true) {
+            long bits = meanRunNanos.get(index);
+            double mean = Double.longBitsToDouble(bits);
+            double updated = mean < 0 ? nanos : mean + 0.2 * (nanos - mean);
+            if (meanRunNanos.compareAndSet(index, bits, Double.doubleToLongBits(updated))) return;
+        }
+    }
+
+    private void registerTenantMeters(Tenant tenant) {
+        if (!meteredTenants.add(tenant)) return;
+        Gauge.builder("tasks.tenant.queued", this, e -> e.getQueued(tenant))
+                .tag("college", tenant.college()).tag("teacher", tenant.teacher())
+                .register(meterRegistry);
+        Gauge.builder("tasks.tenant.running", this, e -> e.getRunning(tenant))
+                .tag("college", tenant.college()).tag("teacher", tenant.teacher())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,125 @@
+package com.autoevaluator.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for idempotent calls to slow external services.
+ *
+ * If the first attempt has not answered after the observed latency percentile (e.g. p95), a duplicate
+ * is sent and whichever answers first wins; the other is cancelled. Hedges are capped at
+ * {@code budgetPercent} of all requests so a slow service never sees much more than its normal load.
+ *
+ * The percentile comes from calls wrapped in {@link #measure}; callers wrap only the downstream request,
+ * so time spent waiting for a local permit or queue slot does not count as service latency.
+ */
+public class RequestHedger {
+
+    private static final int WINDOW = 512;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final double budgetPercent;
+    private final long minDelayMillis;
+
+    private final long[] samples = new long[WINDOW];
+    private int sampleCount;
+    private int nextSample;
+    private volatile long hedgeDelayMillis = -1;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    public RequestHedger(String name, MeterRegistry meterRegistry, boolean enabled, double percentile,
+                         double budgetPercent, Duration minDelay) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.budgetPercent = budgetPercent;
+        this.minDelayMillis = minDelay.toMillis();
+
+        this.hedgesSent = Counter.builder(name + ".hedge.sent").register(meterRegistry);
+        this.hedgesWon = Counter.builder(name + ".hedge.won").register(meterRegistry);
+        Gauge.builder(name + ".hedge.delay.ms", this, h -> h.hedgeDelayMillis).register(meterRegistry);
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        return hedge(call, () -> true);
+    }
+
+    /**
+     * Runs {@code call}, sending one duplicate after the hedge delay if {@code hedgeAllowed} still holds
+     * and the hedge budget is not used up. Errors of the duplicate are ignored; the first attempt's
+     * error or result is what the caller sees unless the duplicate answers first.
+     */
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call, BooleanSupplier hedgeAllowed) {
+        return Mono.defer(() -> {
+            requests.incrementAndGet();
+            Mono<T> primary = call.get();
+
+            long delay = hedgeDelayMillis;
+            if (!enabled || delay < 0) {
+                return primary;
+            }
+
+            Mono<T> duplicate = Mono.delay(Duration.ofMillis(delay))
+                    .flatMap(tick -> {
+                        if (!hedgeAllowed.getAsBoolean() || !tryTakeBudget()) {
+                            return Mono.<T>never();
+                        }
+                        hedgesSent.increment();
+                        return call.get()
+                                .doOnNext(result -> hedgesWon.increment())
+                                .onErrorResume(e -> Mono.never());
+                    });
+
+            return Mono.firstWithSignal(primary, duplicate);
+        });
+    }
+
+    private boolean tryTakeBudget() {
+        long allowed = (long) (requests.get() * budgetPercent / 100.0);
+        while (true) {
+            long used = hedges.get();
+            if (used >= allowed) return false;
+            if (hedges.compareAndSet(used, used + 1)) return true;
+        }
+    }
+
+    /**
+     * Samples the latency of a downstream call for the hedge delay. Failures and timeouts are sampled too:
+     * leaving out the slowest calls would pull the percentile down and make hedges fire too early.
+     */
+    public <T> Mono<T> measure(Mono<T> downstream) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return downstream
+                    .doOnSuccess(result -> record((System.nanoTime() - start) / 1_000_000))
+                    .doOnError(e -> record((System.nanoTime() - start) / 1_000_000));
+        });
+    }
+
+    private synchronized void record(long latencyMillis) {
+        samples[nextSample] = latencyMillis;
+        nextSample = (nextSample + 1) % WINDOW;
+        sampleCount++;
+
+        if (sampleCount == MIN_SAMPLES || (sampleCount > MIN_SAMPLES && sampleCount % RECOMPUTE_EVERY == 0)) {
+            long[] window = Arrays.copyOf(samples, Math.min(sampleCount, WINDOW));
+            Arrays.sort(window);
+            int index = (int) Math.min(window.length - 1, Math.ceil(percentile * window.length) - 1);
+            hedgeDelayMillis = Math.max(minDelayMillis, window[Math.max(0, index)]);
+        }
+    }
+}
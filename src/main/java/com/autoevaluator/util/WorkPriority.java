@@ -0,0 +1,28 @@
+package com.autoevaluator.util;
+
+/**
+ * Priority of work competing for the shared task pool and the external services.
+ * INTERACTIVE is a teacher waiting on one sheet; BULK is one student of a bulk job.
+ */
+public enum WorkPriority {
+    INTERACTIVE,
+    BULK;
+
+    private static final ThreadLocal<WorkPriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Priority of the task running on this thread; work started outside the task pool counts as interactive.
+     */
+    public static WorkPriority current() {
+        WorkPriority priority = CURRENT.get();
+        return priority != null ? priority : INTERACTIVE;
+    }
+
+    static void set(WorkPriority priority) {
+        if (priority == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(priority);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerDeduplicatorTest {
+
+    private final AnswerDeduplicator deduplicator = new AnswerDeduplicator();
+
+    @Test
+    void waiterCountsAsReusedOnlyOnceTheScoreArrives() {
+        assertThat(deduplicator.claim("k")).isNull();
+        CompletableFuture<AnswerDeduplicator.SharedScore> shared = deduplicator.claim("k");
+        assertThat(shared).isNotNull();
+        assertThat(deduplicator.getReused()).isZero();
+
+        deduplicator.complete("k", new CompareAnswersResponse(), false);
+
+        assertThat(deduplicator.await(shared)).isNotNull();
+        assertThat(deduplicator.getScored()).isEqualTo(1);
+        assertThat(deduplicator.getReused()).isEqualTo(1);
+    }
+
+    @Test
+    void failedClaimReusesNothingAndIsNotScoredTwice() {
+        deduplicator.claim("k");
+        CompletableFuture<AnswerDeduplicator.SharedScore> shared = deduplicator.claim("k");
+
+        deduplicator.fail("k", new IllegalStateException("scorer down"));
+
+        assertThat(deduplicator.await(shared)).isNull();
+        assertThat(deduplicator.getReused()).isZero();
+
+        // The pair is unclaimed again and the next sheet owns it, but it is still one distinct answer
+        assertThat(deduplicator.claim("k")).isNull();
+        assertThat(deduplicator.getScored()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.autoevaluator.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnswerSheetParserTest {
+
+    private final AnswerSheetParser parser = new AnswerSheetParser();
+
+    @Test
+    void acceptsEveryMarkerSpellingAndSeparator() {
+        String text = """
+                Roll No: 7
+                Ans1 Photosynthesis
+                makes glucose
+                (AMS:2) lost to OCR
+                * axs - 3 third
+                ...ars.4
+                fourth
+                """;
+
+        assertSameAsRegex(text);
+        assertThat(parser.parse(text)).containsExactly(
+                Map.entry("Ans1", "Photosynthesis makes glucose"),
+                Map.entry("Ans2", ") lost to OCR"),
+                Map.entry("Ans3", "third"),
+                Map.entry("Ans4", "fourth"));
+    }
+
+    @Test
+    void repeatedNumberKeepsFirstPositionAndLastText() {
+        String text = "Ans1 first try\nAns2 two\nAns1 second try\n";
+
+        assertSameAsRegex(text);
+        assertThat(parser.parse(text)).containsExactly(
+                Map.entry("Ans1", "second try"),
+                Map.entry("Ans2", "two"));
+    }
+
+    @Test
+    void dropsEmptyAnswers() {
+        String text = "Ans1\n\n   \nAns2 written\nAns3\r\nAns1 late\n";
+
+        assertSameAsRegex(text);
+        assertThat(parser.parse(text)).containsExactly(
+                Map.entry("Ans1", "late"),
+                Map.entry("Ans2", "written"));
+        assertThat(parser.parse(" \n\t\n")).isEmpty();
+        assertThat(parser.parse(null)).isEmpty();
+    }
+
+    @Test
+    void sortsOutOfOrderAnswersNumerically() {
+        String text = "Ans10 ten\nAns2 two\nAns007 seven\nAns1 one\n";
+
+        assertSameAsRegex(text);
+        assertThat(parser.parse(text).keySet()).containsExactly("Ans1", "Ans2", "Ans007", "Ans10");
+    }
+
+    @Test
+    void oversizedNumbersSortWithoutOverflow() {
+        String text = "Ans99999999999 huge\nAns2 two\nAns1 one\n";
+
+        // The regex version parsed the number as an int and failed the whole sheet
+        assertThatThrownBy(() -> RegexAnswerSheetParser.parse(text)).isInstanceOf(NumberFormatException.class);
+        assertThat(parser.parse(text).keySet()).containsExactly("Ans1", "Ans2", "Ans99999999999");
+    }
+
+    @Test
+    void matchesRegexParserOnSyntheticSheets() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            assertSameAsRegex(SyntheticOcrText.sheet(random, 1 + random.nextInt(40), 6));
+        }
+    }
+
+    @Test
+    void parseStoredReadsBackFormat() {
+        Map<String, String> answers = parser.parse("Ans1 one\nAns2 two\n");
+
+        assertThat(parser.parseStored(parser.format(answers))).isEqualTo(answers);
+    }
+
+    private void assertSameAsRegex(String text) {
+        List<Map.Entry<String, String>> expected = new ArrayList<>(RegexAnswerSheetParser.parse(text).entrySet());
+        List<Map.Entry<String, String>> actual = new ArrayList<>(parser.parse(text).entrySet());
+        assertThat(actual).as("parse of:%n%s", text).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,86 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.dto.CompareAnswersRequest;
+import com.autoevaluator.domain.dto.CompareAnswersResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LexicalAnswerScorerTest {
+
+    private static final String KEY = "Photosynthesis converts light energy into chemical energy stored in glucose, "
+            + "using carbon dioxide and water and releasing oxygen.";
+
+    private final LexicalAnswerScorer scorer = new LexicalAnswerScorer();
+
+    @Test
+    void tokenizeDropsStopWordsAndShortTokensAndStems() {
+        assertThat(LexicalAnswerScorer.tokenize("The processes are Processing DATA, a class of 2 x!"))
+                .containsExactly("process", "process", "data", "class");
+        assertThat(LexicalAnswerScorer.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void identicalAnswerGetsFullMarks() {
+        CompareAnswersResponse response = score(KEY, KEY, 10);
+
+        assertThat(response.getScore()).isEqualTo(10.0);
+        assertThat(response.getEntailment()).isCloseTo(1.0, within(1e-9));
+        assertThat(response.getContradiction()).isZero();
+    }
+
+    @Test
+    void moreOverlapScoresHigher() {
+        double partial = score(KEY, "Light energy becomes chemical energy in glucose.", 10).getEntailment();
+        double fuller = score(KEY, "Light energy becomes chemical energy in glucose using carbon dioxide and water, "
+                + "and oxygen is released.", 10).getEntailment();
+        double unrelated = score(KEY, "Newton's third law concerns action and reaction forces.", 10).getEntailment();
+
+        assertThat(unrelated).isZero();
+        assertThat(partial).isBetween(0.0, 1.0).isGreaterThan(unrelated);
+        assertThat(fuller).isGreaterThan(partial);
+    }
+
+    @Test
+    void blankAnswerScoresZero() {
+        assertThat(score(KEY, "", 10).getScore()).isZero();
+        assertThat(score(KEY, "the and of", 10).getScore()).isZero();
+    }
+
+    @Test
+    void responsesRoundToHalfMarksAndReportTheRestAsNeutral() {
+        CompareAnswersResponse response = LexicalAnswerScorer.toResponse(0.74, 10);
+        assertThat(response.getScore()).isEqualTo(7.5);
+        assertThat(response.getNeutral()).isCloseTo(0.26, within(1e-9));
+
+        assertThat(LexicalAnswerScorer.toResponse(1.3, 4).getScore()).isEqualTo(4.0);
+        assertThat(LexicalAnswerScorer.toResponse(-0.2, 5).getScore()).isZero();
+    }
+
+    @Test
+    void pretokenizedKeysScoreTheSame() {
+        List<CompareAnswersRequest> requests = List.of(
+                request(KEY, "Light energy becomes chemical energy in glucose.", 5),
+                request("Ohm's law relates voltage, current and resistance.", "Voltage equals current times resistance.", 3));
+        List<List<String>> keys = requests.stream()
+                .map(request -> LexicalAnswerScorer.tokenize(request.getTeacher_answer()))
+                .toList();
+
+        assertThat(scorer.scoreAll(requests, keys)).isEqualTo(scorer.scoreAll(requests));
+    }
+
+    private CompareAnswersResponse score(String key, String answer, double marks) {
+        return scorer.scoreAll(List.of(request(key, answer, marks))).get(0);
+    }
+
+    private static CompareAnswersRequest request(String key, String answer, double marks) {
+        CompareAnswersRequest request = new CompareAnswersRequest();
+        request.setTeacher_answer(key);
+        request.setStudent_answer(answer);
+        request.setTotal_marks(marks);
+        return request;
+    }
+}
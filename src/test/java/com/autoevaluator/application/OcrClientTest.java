@@ -0,0 +1,144 @@
+package com.autoevaluator.application;
+
+import com.autoevaluator.domain.entity.OcrPageCacheEntry;
+import com.autoevaluator.domain.repositories.OcrPageCacheRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OcrClientTest {
+
+    private static final Pattern FILENAME = Pattern.compile("filename=\"(p\\d+)\\.jpg\"");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrPageCacheRepository repository = mock(OcrPageCacheRepository.class);
+    private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> failOnce = ConcurrentHashMap.newKeySet();
+
+    @Test
+    void chunksAreReassembledInSheetOrderWhateverOrderTheyFinish() {
+        OcrClient client = client(false, 2, 0);
+
+        String text = client.extractText(pages("p1", "p2", "p3", "p4", "p5", "p6", "p7"));
+
+        assertThat(text).isEqualTo("p1 p2\np3 p4\np5 p6\np7");
+        assertThat(requests).containsExactlyInAnyOrder(
+                List.of("p1", "p2"), List.of("p3", "p4"), List.of("p5", "p6"), List.of("p7"));
+    }
+
+    @Test
+    void failedChunkIsRetriedOnItsOwn() {
+        OcrClient client = client(false, 2, 1);
+        failOnce.add("p3");
+
+        String text = client.extractText(pages("p1", "p2", "p3", "p4"));
+
+        assertThat(text).isEqualTo("p1 p2\np3 p4");
+        assertThat(requests).containsExactlyInAnyOrder(List.of("p1", "p2"), List.of("p3", "p4"), List.of("p3", "p4"));
+        assertThat(meterRegistry.counter("ocr.chunk.retries").count()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedChunksAreNotSentAgain() {
+        OcrClient client = client(true, 2, 0);
+        assertThat(client.extractText(pages("p1", "p2", "p3", "p4", "p5"))).isEqualTo("p1 p2\np3 p4\np5");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OcrPageCacheEntry>> stored = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(stored.capture());
+        assertThat(stored.getValue()).hasSize(3);
+        when(repository.findAllById(any())).thenReturn(stored.getValue());
+        requests.clear();
+
+        // Same sheet again: everything from the cache
+        assertThat(client.extractText(pages("p1", "p2", "p3", "p4", "p5"))).isEqualTo("p1 p2\np3 p4\np5");
+        assertThat(requests).isEmpty();
+
+        // Second chunk rescanned: only that chunk is read, the others still come from the cache
+        List<MultipartFile> rescanned = pages("p1", "p2", "p3", "p4", "p5");
+        rescanned.set(3, page("p4", "rescanned"));
+        assertThat(client.extractText(rescanned)).isEqualTo("p1 p2\np3 p4\np5");
+        assertThat(requests).containsExactly(List.of("p3", "p4"));
+    }
+
+    private OcrClient client(boolean cacheEnabled, int chunkSize, int chunkRetries) {
+        OcrPageCache cache = new OcrPageCache(repository, meterRegistry, cacheEnabled, DataSize.ofMegabytes(1),
+                Duration.ofMinutes(1), "v1");
+        OcrImagePreprocessor preprocessor = new OcrImagePreprocessor(Runnable::run, meterRegistry, false, 200,
+                true, true, 0.8f);
+        return new OcrClient(ocrService(), cache, preprocessor, meterRegistry, false, 0.95, 5, Duration.ofSeconds(2),
+                8, chunkSize, chunkRetries, Duration.ofMillis(10));
+    }
+
+    /**
+     * Fake OCR service answering each request with the names of its pages. Earlier pages are answered
+     * later, so chunks finish in reverse order; pages in failOnce fail their first request with a 503.
+     */
+    private WebClient ocrService() {
+        return WebClient.builder()
+                .baseUrl("http://ocr.test")
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest written = new MockClientHttpRequest(request.method(), request.url());
+                    return request.writeTo(written, ExchangeStrategies.withDefaults())
+                            .then(Mono.defer(written::getBodyAsString))
+                            .flatMap(body -> {
+                                List<String> names = new ArrayList<>();
+                                Matcher matcher = FILENAME.matcher(body);
+                                while (matcher.find()) names.add(matcher.group(1));
+                                requests.add(names);
+
+                                if (names.stream().anyMatch(failOnce::remove)) {
+                                    return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+                                }
+                                int first = Integer.parseInt(names.get(0).substring(1));
+                                ClientResponse response = ClientResponse.create(HttpStatus.OK)
+                                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                        .body("{\"extracted_text\":\"" + String.join(" ", names) + "\"}")
+                                        .build();
+                                return Mono.delay(Duration.ofMillis(Math.max(0, 80 - 10 * first))).thenReturn(response);
+                            });
+                })
+                .build();
+    }
+
+    private static List<MultipartFile> pages(String... names) {
+        List<MultipartFile> pages = new ArrayList<>();
+        for (String name : names) {
+            pages.add(page(name, "scan"));
+        }
+        return pages;
+    }
+
+    private static MultipartFile page(String name, String scan) {
+        return new MockMultipartFile("files", name + ".jpg", "image/jpeg",
+                (scan + " of " + name).getBytes(StandardCharsets.UTF_8));
+    }
+}
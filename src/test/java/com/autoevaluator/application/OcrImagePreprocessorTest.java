@@ -0,0 +1,111 @@
+package com.autoevaluator.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OcrImagePreprocessorTest {
+
+    @Test
+    void readsOrientationInEitherByteOrder() {
+        assertThat(OcrImagePreprocessor.jpegOrientation(jpegWithOrientation(6, true))).isEqualTo(6);
+        assertThat(OcrImagePreprocessor.jpegOrientation(jpegWithOrientation(8, false))).isEqualTo(8);
+        assertThat(OcrImagePreprocessor.jpegOrientation(jpegWithOrientation(3, true))).isEqualTo(3);
+    }
+
+    @Test
+    void findsExifAfterOtherSegments() {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        jpeg.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        segment(jpeg, 0xE0, "JFIF\0\1\1\0\0\1\0\1\0\0".getBytes(StandardCharsets.ISO_8859_1));
+        segment(jpeg, 0xE1, exif(6, false));
+        segment(jpeg, 0xDA, new byte[8]);
+
+        assertThat(OcrImagePreprocessor.jpegOrientation(jpeg.toByteArray())).isEqualTo(6);
+    }
+
+    @Test
+    void defaultsToUprightWithoutUsableExif() {
+        ByteArrayOutputStream noExif = new ByteArrayOutputStream();
+        noExif.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        segment(noExif, 0xE0, "JFIF\0\1\1\0\0\1\0\1\0\0".getBytes(StandardCharsets.ISO_8859_1));
+        segment(noExif, 0xDA, new byte[8]);
+        assertThat(OcrImagePreprocessor.jpegOrientation(noExif.toByteArray())).isEqualTo(1);
+
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        assertThat(OcrImagePreprocessor.jpegOrientation(png)).isEqualTo(1);
+        assertThat(OcrImagePreprocessor.jpegOrientation(new byte[0])).isEqualTo(1);
+
+        assertThat(OcrImagePreprocessor.jpegOrientation(jpegWithOrientation(9, true))).isEqualTo(1);
+    }
+
+    @Test
+    void toleratesTruncatedOrCorruptExif() {
+        byte[] jpeg = jpegWithOrientation(6, true);
+        for (int length = 0; length < jpeg.length; length++) {
+            byte[] truncated = Arrays.copyOf(jpeg, length);
+            assertThat(OcrImagePreprocessor.jpegOrientation(truncated)).isBetween(1, 8);
+        }
+
+        byte[] badOffset = jpegWithOrientation(6, true);
+        // SOI, APP1 marker and length, "Exif\0\0" and "II*\0" come first; byte 18 is in the IFD offset
+        badOffset[18] = 0x7F;
+        assertThat(OcrImagePreprocessor.jpegOrientation(badOffset)).isEqualTo(1);
+    }
+
+    private static byte[] jpegWithOrientation(int orientation, boolean littleEndian) {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        jpeg.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        segment(jpeg, 0xE1, exif(orientation, littleEndian));
+        segment(jpeg, 0xDA, new byte[8]);
+        return jpeg.toByteArray();
+    }
+
+    // "Exif\0\0", a TIFF header and an IFD holding only the orientation tag
+    private static byte[] exif(int orientation, boolean littleEndian) {
+        ByteArrayOutputStream exif = new ByteArrayOutputStream();
+        exif.writeBytes("Exif\0\0".getBytes(StandardCharsets.ISO_8859_1));
+        exif.writeBytes(littleEndian ? new byte[]{'I', 'I'} : new byte[]{'M', 'M'});
+        writeShort(exif, 42, littleEndian);
+        writeInt(exif, 8, littleEndian);
+        writeShort(exif, 1, littleEndian);      // one entry
+        writeShort(exif, 0x0112, littleEndian); // orientation
+        writeShort(exif, 3, littleEndian);      // SHORT
+        writeInt(exif, 1, littleEndian);
+        writeShort(exif, orientation, littleEndian);
+        writeShort(exif, 0, littleEndian);
+        writeInt(exif, 0, littleEndian);        // no next IFD
+        return exif.toByteArray();
+    }
+
+    private static void segment(ByteArrayOutputStream jpeg, int marker, byte[] payload) {
+        jpeg.write(0xFF);
+        jpeg.write(marker);
+        writeShort(jpeg, payload.length + 2, false);
+        jpeg.writeBytes(payload);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        if (littleEndian) {
+            out.write(value & 0xFF);
+            out.write((value >> 8) & 0xFF);
+        } else {
+            out.write((value >> 8) & 0xFF);
+            out.write(value & 0xFF);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value, boolean littleEndian) {
+        if (littleEndian) {
+            writeShort(out, value & 0xFFFF, true);
+            writeShort(out, value >>> 16, true);
+        } else {
+            writeShort(out, value >>> 16, false);
+            writeShort(out, value & 0xFFFF, false);
+        }
+    }
+}
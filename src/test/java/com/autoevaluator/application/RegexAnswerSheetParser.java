@@ -0,0 +1,77 @@
+package com.autoevaluator.application;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The regex parseAnswerSheetText that TeacherService and EvaluationService each had before
+ * {@link AnswerSheetParser}, kept verbatim as the reference for equivalence tests and benchmarks.
+ */
+final class RegexAnswerSheetParser {
+
+    private RegexAnswerSheetParser() {
+    }
+
+    static Map<String, String> parse(String text) {
+        if (text == null || text.trim().isEmpty()) return Collections.emptyMap();
+
+        // We'll store in insertion order (LinkedHashMap) to keep question order intact
+        Map<String, String> result = new LinkedHashMap<>();
+
+        Pattern answerStartPattern = Pattern.compile("(?i)[^a-zA-Z0-9]*?(ans|ams|axs|ars)[\\s:!.-]*(\\d+)\\s*(.*)?");
+
+
+        String currentKey = null;
+        StringBuilder currentAnswer = new StringBuilder();
+
+        String[] lines = text.split("\\r?\\n");
+
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            Matcher matcher = answerStartPattern.matcher(line);
+            if (matcher.matches()) {
+                // Save previous answer
+                if (currentKey != null && currentAnswer.length() > 0) {
+                    result.put(currentKey, currentAnswer.toString().trim());
+                    currentAnswer.setLength(0);
+                }
+
+                // Start new answer
+                String number = matcher.group(2);
+                currentKey = "Ans" + number;
+
+                String inlineAnswer = matcher.group(3);
+                if (inlineAnswer != null && !inlineAnswer.isBlank()) {
+                    currentAnswer.append(inlineAnswer.trim()).append(" ");
+                }
+
+            } else {
+                if (currentKey != null) {
+                    currentAnswer.append(line).append(" ");
+                }
+            }
+        }
+
+        // Save the final answer
+        if (currentKey != null && currentAnswer.length() > 0) {
+            result.put(currentKey, currentAnswer.toString().trim());
+        }
+
+        // Sort by numeric suffix of the key (e.g., "Ans1", "Ans2", ...)
+        return result.entrySet().stream()
+                .sorted(Comparator.comparingInt(e -> Integer.parseInt(e.getKey().substring(3))))
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        Map.Entry::getValue,
+                        (oldVal, newVal) -> oldVal,
+                        LinkedHashMap::new
+                ));
+    }
+}
@@ -0,0 +1,69 @@
+package com.autoevaluator.application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates OCR dumps of answer sheets with the noise real ones have: misread and differently cased
+ * markers, stray punctuation before them, assorted separators, CRLF lines, blank lines, empty answers,
+ * repeated and shuffled question numbers.
+ */
+final class SyntheticOcrText {
+
+    private static final String[] MARKERS = {"Ans", "Ans", "ANS", "ans", "Ams", "Axs", "Ars", "aRS"};
+    private static final String[] SEPARATORS = {" ", "", ":", ": ", ". ", " - ", "!", ":-\t", "..  "};
+    private static final String[] PREFIXES = {"", "", "", "(", "* ", "\"", "... ", "|"};
+    private static final String[] WORDS = {
+            "the", "mitochondria", "is", "powerhouse", "of", "cell", "energy", "ATP", "answer", "ans",
+            "2", "x", "=", "(a)", "therefore", "Newton's", "law", "F=ma", "-", "ii)", "resistance", "ohm"
+    };
+
+    private SyntheticOcrText() {
+    }
+
+    static String sheet(Random random, int questions, int linesPerAnswer) {
+        StringBuilder text = new StringBuilder("Roll No: 1024\nName: Synthetic Student\n\n");
+
+        List<Integer> order = new ArrayList<>();
+        for (int q = 1; q <= questions; q++) order.add(q);
+        if (random.nextInt(4) == 0) Collections.shuffle(order, random);
+        for (int i = 0; i < questions / 10; i++) {
+            order.add(random.nextInt(order.size() + 1), 1 + random.nextInt(questions)); // rewritten answer
+        }
+
+        for (int question : order) {
+            String eol = random.nextInt(8) == 0 ? "\r\n" : "\n";
+            text.append(pick(random, PREFIXES)).append(pick(random, MARKERS))
+                    .append(pick(random, SEPARATORS)).append(question);
+            if (random.nextInt(10) == 0) {
+                text.append(eol); // left empty
+                continue;
+            }
+            if (random.nextBoolean()) text.append(' ').append(line(random));
+            int lines = random.nextInt(linesPerAnswer + 1);
+            for (int i = 0; i < lines; i++) {
+                text.append(eol);
+                if (random.nextInt(6) == 0) text.append("   ").append(eol);
+                text.append(random.nextInt(5) == 0 ? "  " : "").append(line(random));
+            }
+            text.append(eol);
+        }
+        return text.toString();
+    }
+
+    private static String line(Random random) {
+        StringBuilder line = new StringBuilder();
+        int words = 1 + random.nextInt(12);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) line.append(' ');
+            line.append(pick(random, WORDS));
+        }
+        return line.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
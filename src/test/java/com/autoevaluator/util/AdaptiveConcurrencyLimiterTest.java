@@ -0,0 +1,118 @@
+package com.autoevaluator.util;
+
+import com.autoevaluator.util.AdaptiveConcurrencyLimiter.Outcome;
+import com.autoevaluator.util.AdaptiveConcurrencyLimiter.Permit;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxLimit, Duration latencyThreshold,
+                                                      Duration maxQueueWait, CircuitBreaker breaker) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, 1, maxLimit, 0.5, latencyThreshold,
+                maxQueueWait, breaker);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxLimit) {
+        return limiter(initialLimit, maxLimit, Duration.ofMinutes(1), Duration.ofMinutes(1),
+                new CircuitBreaker(100, 60_000));
+    }
+
+    @Test
+    void queuesRequestsAboveTheLimitUntilAPermitIsReleased() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 2);
+        Permit first = limiter.acquire().block();
+        limiter.acquire().block();
+
+        AtomicReference<Permit> third = new AtomicReference<>();
+        limiter.acquire().subscribe(third::set);
+        assertThat(third.get()).isNull();
+        assertThat(limiter.getQueued()).isEqualTo(1);
+
+        first.release(Outcome.IGNORED);
+        assertThat(third.get()).isNotNull();
+        assertThat(limiter.getQueued()).isZero();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void fastSuccessesGrowTheLimitUpToTheMax() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 3);
+        Permit first = limiter.acquire().block();
+        Permit second = limiter.acquire().block();
+
+        first.release(Outcome.SUCCESS);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+
+        Permit third = limiter.acquire().block();
+        Permit fourth = limiter.acquire().block();
+        second.release(Outcome.SUCCESS);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+        third.release(Outcome.SUCCESS);
+        fourth.release(Outcome.SUCCESS);
+    }
+
+    @Test
+    void dropsAndSlowCallsBackOffMultiplicatively() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 8);
+        limiter.acquire().block().release(Outcome.DROPPED);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        limiter.acquire().block().release(Outcome.DROPPED);
+        limiter.acquire().block().release(Outcome.DROPPED);
+        limiter.acquire().block().release(Outcome.DROPPED);
+        assertThat(limiter.getLimit()).isEqualTo(1);
+
+        AdaptiveConcurrencyLimiter slow = limiter(8, 8, Duration.ZERO, Duration.ofMinutes(1), new CircuitBreaker(100, 60_000));
+        slow.acquire().block().release(Outcome.SUCCESS);
+        assertThat(slow.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void releasingTwiceCountsOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 8);
+        Permit permit = limiter.acquire().block();
+        permit.release(Outcome.DROPPED);
+        permit.release(Outcome.DROPPED);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void interactiveRequestsAreGrantedBeforeQueuedBulkOnes() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1);
+        Permit held = limiter.acquire().block();
+
+        AtomicReference<Permit> bulk = new AtomicReference<>();
+        AtomicReference<Permit> interactive = new AtomicReference<>();
+        limiter.acquire(WorkPriority.BULK).subscribe(bulk::set);
+        limiter.acquire(WorkPriority.INTERACTIVE).subscribe(interactive::set);
+
+        held.release(Outcome.IGNORED);
+        assertThat(interactive.get()).isNotNull();
+        assertThat(bulk.get()).isNull();
+        assertThat(limiter.getQueued(WorkPriority.BULK)).isEqualTo(1);
+
+        interactive.get().release(Outcome.IGNORED);
+        assertThat(bulk.get()).isNotNull();
+    }
+
+    @Test
+    void openBreakerQueuesRequestsUntilTheyTimeOut() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 4, Duration.ofMinutes(1), Duration.ofMillis(100), breaker);
+        limiter.acquire().block().release(Outcome.DROPPED);
+        limiter.acquire().block().release(Outcome.DROPPED);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> limiter.acquire().block())
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("test service unavailable");
+        assertThat(limiter.getQueued()).isZero();
+    }
+}
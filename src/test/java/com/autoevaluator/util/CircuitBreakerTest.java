@@ -0,0 +1,67 @@
+package com.autoevaluator.util;
+
+import com.autoevaluator.util.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess(); // resets the streak
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.remainingOpenMillis()).isPositive();
+    }
+
+    @Test
+    void halfOpenLetsOneProbeThroughAndClosesOnSuccess() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failedProbeOpensAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 0);
+        for (int i = 0; i < 5; i++) breaker.onFailure();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+
+        // One failure in half-open state is enough, whatever the threshold
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void ignoredProbeFreesTheProbeSlot() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onIgnored();
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+}
@@ -0,0 +1,111 @@
+package com.autoevaluator.util;
+
+import com.autoevaluator.util.FairShareQueue.Tenant;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FairShareQueueTest {
+
+    private static final Tenant A = new Tenant("A", "alice");
+    private static final Tenant B = new Tenant("B", "bob");
+
+    @Test
+    void collegesWithEqualWeightTakeTurns() {
+        FairShareQueue<String> queue = new FairShareQueue<>(Map.of(), 0, 0);
+        addAll(queue, A, "a", 4);
+        addAll(queue, B, "b", 4);
+
+        assertThat(pollAll(queue)).containsExactly("a1", "b1", "a2", "b2", "a3", "b3", "a4", "b4");
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void collegesShareInProportionToWeight() {
+        FairShareQueue<String> queue = new FairShareQueue<>(Map.of("A", 3), 0, 0);
+        addAll(queue, A, "a", 6);
+        addAll(queue, B, "b", 6);
+
+        assertThat(pollAll(queue).subList(0, 8)).containsExactly("a1", "a2", "a3", "b1", "a4", "a5", "a6", "b2");
+    }
+
+    @Test
+    void teachersShareTheirCollegesTurns() {
+        FairShareQueue<String> queue = new FairShareQueue<>(Map.of(), 0, 0);
+        Tenant carol = new Tenant("A", "carol");
+        addAll(queue, A, "alice", 2);
+        addAll(queue, carol, "carol", 2);
+        addAll(queue, B, "bob", 4);
+
+        // A's turns alternate between its teachers; a teacher with more queued work does not get more turns
+        assertThat(pollAll(queue)).containsExactly("alice1", "bob1", "carol1", "bob2", "alice2", "bob3", "carol2", "bob4");
+    }
+
+    @Test
+    void teacherWeightsApplyWithinTheCollege() {
+        FairShareQueue<String> queue = new FairShareQueue<>(Map.of("A/alice", 2), 0, 0);
+        Tenant carol = new Tenant("A", "carol");
+        addAll(queue, A, "alice", 4);
+        addAll(queue, carol, "carol", 4);
+
+        assertThat(pollAll(queue).subList(0, 6)).containsExactly("alice1", "alice2", "carol1", "alice3", "alice4", "carol2");
+    }
+
+    @Test
+    void collegeAtItsCapIsSkippedUntilATaskFinishes() {
+        FairShareQueue<String> queue = new FairShareQueue<>(Map.of(), 1, 0);
+        addAll(queue, A, "a", 3);
+        addAll(queue, B, "b", 1);
+
+        assertThat(queue.poll().task()).isEqualTo("a1");
+        assertThat(queue.poll().task()).isEqualTo("b1");
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.running(A)).isEqualTo(1);
+
+        queue.finished(A);
+        assertThat(queue.poll().task()).isEqualTo("a2");
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.queued(A)).isEqualTo(1);
+    }
+
+    @Test
+    void teacherAtItsCapLetsColleaguesRun() {
+        FairShareQueue<String> queue = new FairShareQueue<>(Map.of(), 0, 1);
+        Tenant carol = new Tenant("A", "carol");
+        addAll(queue, A, "alice", 3);
+        addAll(queue, carol, "carol", 1);
+
+        assertThat(queue.poll().task()).isEqualTo("alice1");
+        assertThat(queue.poll().task()).isEqualTo("carol1");
+        assertThat(queue.poll()).isNull();
+
+        queue.finished(A);
+        assertThat(queue.poll().task()).isEqualTo("alice2");
+    }
+
+    @Test
+    void unknownTenantsShareOneFlow() {
+        assertThat(new Tenant(null, null)).isEqualTo(new Tenant("unknown", "unknown"));
+    }
+
+    private static void addAll(FairShareQueue<String> queue, Tenant tenant, String prefix, int count) {
+        for (int i = 1; i <= count; i++) {
+            queue.add(tenant, prefix + i);
+        }
+    }
+
+    // Polls until empty, finishing each task right away so caps never get in the way
+    private static List<String> pollAll(FairShareQueue<String> queue) {
+        List<String> order = new ArrayList<>();
+        FairShareQueue.Entry<String> entry;
+        while ((entry = queue.poll()) != null) {
+            order.add(entry.task());
+            queue.finished(entry.tenant());
+        }
+        return order;
+    }
+}